@@ -0,0 +1,122 @@
+package org.demo;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.demo.service.ApiCassette;
+import org.demo.service.GoogleApiService;
+import org.demo.service.cache.ConsistentHashCacheClient;
+import org.demo.service.cache.OffHeapResponseCache;
+import org.demo.service.cache.ResponseCache;
+import org.demo.service.cache.TieredResponseCache;
+
+/**
+ * The GoogleApiServiceFactory class creates GoogleApiService instances configured by environment
+ * variables.
+ */
+public class GoogleApiServiceFactory {
+
+  /**
+   * Creates a GoogleApiService using the GOOGLE_API_KEY environment variable, the API cassette
+   * configured by GOOGLE_API_CASSETTE, if any, an off-heap cache of GOOGLE_API_CACHE_OFFHEAP_MB
+   * megabytes, if set, and the shared cache nodes listed in GOOGLE_API_CACHE_PEERS as
+   * comma-separated host:port pairs, if any, authenticated with GOOGLE_API_CACHE_SECRET. The API
+   * key may be omitted when replaying.
+   *
+   * @param maxConnections The maximum number of pooled connections per Google host.
+   * @return The configured service.
+   * @throws IOException If the API cassette cannot be opened.
+   */
+  public static GoogleApiService fromEnvironment(int maxConnections) throws IOException {
+    ApiCassette cassette = openCassette();
+    String apiKey = System.getenv("GOOGLE_API_KEY");
+    if (apiKey == null || apiKey.isEmpty()) {
+      if (cassette == null || cassette.getMode() != ApiCassette.Mode.REPLAY) {
+        throw new IllegalStateException("GOOGLE_API_KEY environment variable is not set");
+      }
+      apiKey = "replay";
+    }
+    return new GoogleApiService(apiKey, cassette, maxConnections, openSecondLevelCache());
+  }
+
+  /**
+   * Creates the caches consulted after the in-process cache: the off-heap cache, then the shared
+   * cache nodes.
+   *
+   * @return The second-level cache, or null if neither is configured.
+   */
+  private static ResponseCache openSecondLevelCache() {
+    ResponseCache offHeapCache = openOffHeapCache();
+    ResponseCache sharedCache = openSharedCache();
+    if (offHeapCache == null || sharedCache == null) {
+      return offHeapCache != null ? offHeapCache : sharedCache;
+    }
+    return new TieredResponseCache(offHeapCache, sharedCache);
+  }
+
+  /**
+   * Creates an off-heap cache sized by the GOOGLE_API_CACHE_OFFHEAP_MB environment variable.
+   *
+   * @return The off-heap cache, or null if no size is configured.
+   */
+  private static ResponseCache openOffHeapCache() {
+    String megabytes = System.getenv("GOOGLE_API_CACHE_OFFHEAP_MB");
+    if (megabytes == null || megabytes.isBlank()) {
+      return null;
+    }
+    try {
+      return new OffHeapResponseCache(Long.parseLong(megabytes.trim()) << 20);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalStateException("Invalid GOOGLE_API_CACHE_OFFHEAP_MB: " + megabytes, e);
+    }
+  }
+
+  /**
+   * Creates a client for the cache nodes listed in the GOOGLE_API_CACHE_PEERS environment variable,
+   * which share the secret in GOOGLE_API_CACHE_SECRET.
+   *
+   * @return The shared cache, or null if no peers are configured.
+   */
+  private static ResponseCache openSharedCache() {
+    String peers = System.getenv("GOOGLE_API_CACHE_PEERS");
+    if (peers == null || peers.isBlank()) {
+      return null;
+    }
+    return new ConsistentHashCacheClient(
+        ConsistentHashCacheClient.parsePeers(peers), cacheSecret());
+  }
+
+  /**
+   * Gets the secret shared by cache nodes and their clients from the GOOGLE_API_CACHE_SECRET
+   * environment variable.
+   *
+   * @return The secret.
+   */
+  static String cacheSecret() {
+    String secret = System.getenv("GOOGLE_API_CACHE_SECRET");
+    if (secret == null || secret.isEmpty()) {
+      throw new IllegalStateException("GOOGLE_API_CACHE_SECRET environment variable is not set");
+    }
+    return secret;
+  }
+
+  /**
+   * Opens the API cassette configured by the GOOGLE_API_CASSETTE environment variable. The
+   * GOOGLE_API_CASSETTE_MODE variable selects "record" or "replay" (the default), and
+   * GOOGLE_API_CASSETTE_LATENCY=true makes replay wait for the recorded latencies.
+   *
+   * @return The cassette, or null if none is configured.
+   * @throws IOException If the cassette file cannot be opened.
+   */
+  private static ApiCassette openCassette() throws IOException {
+    String file = System.getenv("GOOGLE_API_CASSETTE");
+    if (file == null || file.isEmpty()) {
+      return null;
+    }
+    String mode = System.getenv("GOOGLE_API_CASSETTE_MODE");
+    if ("record".equalsIgnoreCase(mode)) {
+      return ApiCassette.record(Path.of(file));
+    }
+    boolean simulateLatency = Boolean.parseBoolean(System.getenv("GOOGLE_API_CASSETTE_LATENCY"));
+    return ApiCassette.replay(Path.of(file), simulateLatency);
+  }
+}
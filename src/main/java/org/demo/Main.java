@@ -1,5 +1,22 @@
 package org.demo;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.demo.batch.ReverseGeocodeIngest;
+import org.demo.service.GoogleApiService;
+import org.demo.service.cache.CacheNode;
+import org.demo.session.SessionManager;
+import org.demo.session.SessionServer;
+import org.demo.trace.TraceRecording;
+import org.demo.util.PostalCodeIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -7,16 +24,235 @@ import org.slf4j.LoggerFactory;
 public class Main {
   private static final Logger logger = LoggerFactory.getLogger(Main.class);
 
+  private static final int DEFAULT_CACHE_NODE_ENTRIES = 1_000_000;
+  private static final int SESSION_SERVER_CONNECTIONS = 32;
+  private static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 900;
+  private static final int DEFAULT_MAX_SESSIONS = 10_000;
+
   /**
-   * The main method initializes the LocationProgram and starts the application.
+   * The main method starts the interactive LocationProgram, or runs the command named by the first
+   * argument.
+   *
+   * <p>Commands:
+   *
+   * <ul>
+   *   <li>{@code reverse-geocode <input|-> <output|-> [--concurrency N] [--precision D]
+   *       [--locality-buffer N] [--resume]} reverse geocodes {@code id,lat,lng} records into JSON
+   *       lines.
+   *   <li>{@code cache-node <port> [--max-entries N] [--bind ADDRESS]} runs a shared response
+   *       cache node, on the loopback address unless another is given. Clients must know the
+   *       secret in {@code GOOGLE_API_CACHE_SECRET}.
+   *   <li>{@code build-postal-index <geonames-file> <index-file>} builds the postal code index used
+   *       to resolve the current location without calling Google.
+   *   <li>{@code session-server <port> [--idle-timeout SECONDS] [--max-sessions N]} serves
+   *       address-entry sessions over HTTP.
+   * </ul>
+   *
+   * <p>When {@code POSTAL_TRACE_FILE} is set, the application's JFR events are recorded and written
+   * to that file on exit.
    *
-   * @param args Command-line arguments (not used).
+   * @param args Command-line arguments.
    */
   public static void main(String[] args) {
+    try {
+      TraceRecording.startFromEnvironment();
+    } catch (IOException e) {
+      logger.warn("Tracing is disabled: {}", e.getMessage());
+    }
+    if (args.length > 0 && args[0].equals("reverse-geocode")) {
+      try {
+        runReverseGeocode(args);
+      } catch (Exception e) {
+        logger.error("An error occurred while reverse geocoding", e);
+        System.exit(1);
+      }
+      return;
+    }
+    if (args.length > 0 && args[0].equals("session-server")) {
+      try {
+        runSessionServer(args);
+      } catch (Exception e) {
+        logger.error("An error occurred while running the session server", e);
+        System.exit(1);
+      }
+      return;
+    }
+    if (args.length > 0 && args[0].equals("build-postal-index")) {
+      try {
+        runBuildPostalIndex(args);
+      } catch (Exception e) {
+        logger.error("An error occurred while building the postal code index", e);
+        System.exit(1);
+      }
+      return;
+    }
+    if (args.length > 0 && args[0].equals("cache-node")) {
+      try {
+        runCacheNode(args);
+      } catch (Exception e) {
+        logger.error("An error occurred while running the cache node", e);
+        System.exit(1);
+      }
+      return;
+    }
+
     try (LocationProgram locationProgram = new LocationProgram()) {
       locationProgram.run();
     } catch (Exception e) {
       logger.error("An error occurred while running the program", e);
     }
   }
+
+  /**
+   * Runs the reverse-geocode command.
+   *
+   * @param args Command-line arguments, starting with the command name.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void runReverseGeocode(String[] args) throws IOException {
+    if (args.length < 3) {
+      throw new IllegalArgumentException(
+          "Usage: reverse-geocode <input|-> <output|-> [--concurrency N] [--precision D]"
+              + " [--locality-buffer N] [--resume]");
+    }
+    int concurrency = ReverseGeocodeIngest.DEFAULT_CONCURRENCY;
+    int precision = ReverseGeocodeIngest.DEFAULT_PRECISION;
+    int localityBuffer = ReverseGeocodeIngest.DEFAULT_LOCALITY_BUFFER;
+    boolean resume = false;
+    for (int i = 3; i < args.length; i++) {
+      switch (args[i]) {
+        case "--concurrency" -> concurrency = Integer.parseInt(args[++i]);
+        case "--precision" -> precision = Integer.parseInt(args[++i]);
+        case "--locality-buffer" -> localityBuffer = Integer.parseInt(args[++i]);
+        case "--resume" -> resume = true;
+        default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+    }
+    boolean files = !args[1].equals("-") && !args[2].equals("-");
+    if (resume && !files) {
+      throw new IllegalArgumentException("--resume needs an input file and an output file");
+    }
+
+    if (files) {
+      try (GoogleApiService googleApiService =
+          GoogleApiServiceFactory.fromEnvironment(concurrency)) {
+        newIngest(googleApiService, concurrency, precision, localityBuffer)
+            .run(Path.of(args[1]), Path.of(args[2]), resume);
+      }
+      return;
+    }
+    try (GoogleApiService googleApiService = GoogleApiServiceFactory.fromEnvironment(concurrency);
+        BufferedReader input =
+            args[1].equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(args[1]));
+        BufferedWriter output =
+            args[2].equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+                : Files.newBufferedWriter(Path.of(args[2]))) {
+      newIngest(googleApiService, concurrency, precision, localityBuffer).run(input, output);
+    }
+  }
+
+  /**
+   * Creates the ingest run by the reverse-geocode command.
+   *
+   * @param googleApiService The service used for Geocoding API calls.
+   * @param concurrency The maximum number of Geocoding API calls in flight.
+   * @param precision The number of decimal places coordinates are snapped to.
+   * @param localityBuffer The number of records that may be held back to group them by area.
+   * @return The ingest.
+   */
+  private static ReverseGeocodeIngest newIngest(
+      GoogleApiService googleApiService, int concurrency, int precision, int localityBuffer) {
+    return new ReverseGeocodeIngest(
+        googleApiService,
+        concurrency,
+        precision,
+        ReverseGeocodeIngest.DEFAULT_MAX_CACHED_CELLS,
+        localityBuffer);
+  }
+
+  /**
+   * Runs the build-postal-index command.
+   *
+   * @param args Command-line arguments, starting with the command name.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static void runBuildPostalIndex(String[] args) throws IOException {
+    if (args.length < 3) {
+      throw new IllegalArgumentException(
+          "Usage: build-postal-index <geonames-file> <index-file>");
+    }
+    PostalCodeIndex.build(Path.of(args[1]), Path.of(args[2]));
+  }
+
+  /**
+   * Runs the cache-node command until the process is stopped.
+   *
+   * @param args Command-line arguments, starting with the command name.
+   * @throws IOException If the port cannot be bound.
+   * @throws InterruptedException If the command is interrupted.
+   */
+  @SuppressWarnings("try")
+  private static void runCacheNode(String[] args) throws IOException, InterruptedException {
+    String usage = "Usage: cache-node <port> [--max-entries N] [--bind ADDRESS]";
+    if (args.length < 2 || args.length % 2 != 0) {
+      throw new IllegalArgumentException(usage);
+    }
+    int maxEntries = DEFAULT_CACHE_NODE_ENTRIES;
+    InetAddress bindAddress = InetAddress.getLoopbackAddress();
+    for (int i = 2; i < args.length; i += 2) {
+      switch (args[i]) {
+        case "--max-entries" -> maxEntries = Integer.parseInt(args[i + 1]);
+        case "--bind" -> bindAddress = InetAddress.getByName(args[i + 1]);
+        default -> throw new IllegalArgumentException(usage);
+      }
+    }
+    try (CacheNode cacheNode =
+        new CacheNode(
+            bindAddress,
+            Integer.parseInt(args[1]),
+            maxEntries,
+            GoogleApiServiceFactory.cacheSecret())) {
+      Thread.currentThread().join();
+    }
+  }
+
+  /**
+   * Runs the session-server command until the process is stopped.
+   *
+   * @param args Command-line arguments, starting with the command name.
+   * @throws IOException If the port cannot be bound or the API cassette cannot be opened.
+   * @throws InterruptedException If the command is interrupted.
+   */
+  @SuppressWarnings("try")
+  private static void runSessionServer(String[] args) throws IOException, InterruptedException {
+    String usage = "Usage: session-server <port> [--idle-timeout SECONDS] [--max-sessions N]";
+    if (args.length < 2 || args.length % 2 != 0) {
+      throw new IllegalArgumentException(usage);
+    }
+    int idleTimeoutSeconds = DEFAULT_IDLE_TIMEOUT_SECONDS;
+    int maxSessions = DEFAULT_MAX_SESSIONS;
+    for (int i = 2; i < args.length; i += 2) {
+      switch (args[i]) {
+        case "--idle-timeout" -> idleTimeoutSeconds = Integer.parseInt(args[i + 1]);
+        case "--max-sessions" -> maxSessions = Integer.parseInt(args[i + 1]);
+        default -> throw new IllegalArgumentException(usage);
+      }
+    }
+
+    try (GoogleApiService googleApiService =
+            GoogleApiServiceFactory.fromEnvironment(SESSION_SERVER_CONNECTIONS);
+        SessionManager sessionManager =
+            new SessionManager(
+                googleApiService,
+                Duration.ofSeconds(idleTimeoutSeconds),
+                maxSessions,
+                System::nanoTime);
+        SessionServer sessionServer =
+            new SessionServer(Integer.parseInt(args[1]), sessionManager)) {
+      Thread.currentThread().join();
+    }
+  }
 }
@@ -0,0 +1,125 @@
+package org.demo.batch;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * The progress of a bulk job whose output is written in input order: every record before the input
+ * offset has its result in the first {@code outputBytes} bytes of the output, and nothing after it
+ * has been written durably.
+ *
+ * @param inputOffset The byte offset in the input of the first line not yet processed.
+ * @param inputLines The number of input lines before that offset.
+ * @param outputBytes The length of the output holding the results of those lines.
+ * @param records The number of records written so far.
+ * @param errors The number of records written so far that could not be resolved.
+ */
+public record IngestCheckpoint(
+    long inputOffset, long inputLines, long outputBytes, long records, long errors) {
+
+  /** The checkpoint of a job that has not started. */
+  public static final IngestCheckpoint START = new IngestCheckpoint(0, 0, 0, 0, 0);
+
+  /**
+   * Gets the checkpoint file kept next to an output file.
+   *
+   * @param output The output file.
+   * @return The checkpoint file.
+   */
+  public static Path fileFor(Path output) {
+    return output.resolveSibling(output.getFileName() + ".checkpoint");
+  }
+
+  /**
+   * Loads a checkpoint.
+   *
+   * @param file The checkpoint file.
+   * @return The checkpoint, or empty if the file does not exist.
+   * @throws IOException If the file cannot be read or is not a checkpoint.
+   */
+  public static Optional<IngestCheckpoint> load(Path file) throws IOException {
+    if (!Files.exists(file)) {
+      return Optional.empty();
+    }
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(file)) {
+      properties.load(in);
+    }
+    try {
+      return Optional.of(
+          new IngestCheckpoint(
+              Long.parseLong(properties.getProperty("inputOffset")),
+              Long.parseLong(properties.getProperty("inputLines")),
+              Long.parseLong(properties.getProperty("outputBytes")),
+              Long.parseLong(properties.getProperty("records")),
+              Long.parseLong(properties.getProperty("errors"))));
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid checkpoint file: " + file, e);
+    }
+  }
+
+  /**
+   * Saves the checkpoint durably, replacing the previous one in a single step so that a crash
+   * leaves either the old or the new checkpoint behind. The directory is flushed after the rename,
+   * so once this returns a crash cannot bring the old checkpoint back.
+   *
+   * @param file The checkpoint file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void save(Path file) throws IOException {
+    Properties properties = new Properties();
+    properties.setProperty("inputOffset", Long.toString(inputOffset));
+    properties.setProperty("inputLines", Long.toString(inputLines));
+    properties.setProperty("outputBytes", Long.toString(outputBytes));
+    properties.setProperty("records", Long.toString(records));
+    properties.setProperty("errors", Long.toString(errors));
+    StringWriter text = new StringWriter();
+    properties.store(text, null);
+
+    Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+    try (FileChannel channel =
+        FileChannel.open(
+            temporary,
+            StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.ISO_8859_1));
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+      channel.force(true);
+    }
+    Files.move(
+        temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    syncDirectory(file.toAbsolutePath().getParent());
+  }
+
+  /**
+   * Flushes a directory to disk so that a rename into it survives a crash.
+   *
+   * @param directory The directory.
+   * @throws IOException If the directory cannot be flushed.
+   */
+  private static void syncDirectory(Path directory) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory, StandardOpenOption.READ);
+    } catch (IOException e) {
+      // Some platforms, such as Windows, cannot open a directory; their renames are durable anyway
+      return;
+    }
+    try (channel) {
+      channel.force(true);
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package org.demo.batch;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The LocalityScheduler class reorders a stream of items so that items sharing a locality key are
+ * released together, which keeps the cache entries for one region warm while its items are looked
+ * up instead of interleaving them with every other region in the input.
+ *
+ * <p>Items are held in a bounded reorder buffer, bucketed by key. Once {@code capacity} items have
+ * been added since the oldest buffered item, the bucket holding it is released as a whole, along
+ * with the items of its key that arrived since. Buckets therefore leave in the order their oldest
+ * item arrived, no item waits for more than {@code capacity} later items, and the buffer never
+ * holds more than {@code capacity} items. Callers that need the original order must restore it
+ * themselves, e.g. by keeping a sequence number.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @param <T> The type of item scheduled.
+ */
+public class LocalityScheduler<T> {
+
+  private final Function<? super T, String> localityKey;
+  private final int capacity;
+  private final Map<String, Bucket<T>> buckets = new LinkedHashMap<>();
+  private long added;
+  private int size;
+
+  /** The buffered items of one key, with the sequence number of the first of them. */
+  private record Bucket<T>(long firstSequence, List<T> items) {}
+
+  /**
+   * Constructs a new LocalityScheduler.
+   *
+   * @param localityKey The function giving an item's locality key.
+   * @param capacity The number of later items an item may wait for before it is released.
+   */
+  public LocalityScheduler(Function<? super T, String> localityKey, int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("Invalid reorder buffer capacity: " + capacity);
+    }
+    this.localityKey = localityKey;
+    this.capacity = capacity;
+  }
+
+  /**
+   * Adds an item to the reorder buffer.
+   *
+   * @param item The item.
+   * @return The items released by this call, in release order; empty if none is due.
+   */
+  public List<T> add(T item) {
+    long sequence = added++;
+    buckets
+        .computeIfAbsent(localityKey.apply(item), key -> new Bucket<>(sequence, new ArrayList<>()))
+        .items()
+        .add(item);
+    size++;
+
+    List<T> released = new ArrayList<>();
+    Iterator<Bucket<T>> oldest = buckets.values().iterator();
+    while (oldest.hasNext()) {
+      Bucket<T> bucket = oldest.next();
+      if (added - bucket.firstSequence() < capacity) {
+        break;
+      }
+      released.addAll(bucket.items());
+      size -= bucket.items().size();
+      oldest.remove();
+    }
+    return released;
+  }
+
+  /**
+   * Releases every buffered item, bucket by bucket.
+   *
+   * @return The released items, in release order.
+   */
+  public List<T> drain() {
+    List<T> released = new ArrayList<>(size);
+    buckets.values().forEach(bucket -> released.addAll(bucket.items()));
+    buckets.clear();
+    size = 0;
+    return released;
+  }
+
+  /**
+   * Gets the number of items in the reorder buffer.
+   *
+   * @return The number of buffered items.
+   */
+  public int size() {
+    return size;
+  }
+}
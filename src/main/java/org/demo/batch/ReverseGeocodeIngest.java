@@ -0,0 +1,569 @@
+package org.demo.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.demo.exception.GoogleApiException;
+import org.demo.model.LocationInfo;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.demo.service.RequestClass;
+import org.demo.util.GeocodingParser;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ReverseGeocodeIngest class turns a stream of device coordinates into postal addresses.
+ *
+ * <p>Each input line holds an {@code id,lat,lng} record. Coordinates are snapped to a grid whose
+ * cell size is set by the precision (4 decimal places is roughly 11 m), and all records in the same
+ * cell share a single Geocoding API call. Cells are resolved in parallel with bounded concurrency,
+ * and one JSON line per record is written in input order.
+ *
+ * <p>Before lookup, records pass through a {@link LocalityScheduler} keyed by a coarse grid cell of
+ * about 11 km, with a reorder buffer several times larger than the cell cache. A buffered record
+ * costs far less memory than a cached cell, so grouping the records of one area within the buffer
+ * reuses lookups that a file mixed from more areas than the cache can hold would otherwise repeat.
+ *
+ * <p>Lookups are made as {@link RequestClass#BULK} requests. One that is shed because interactive
+ * traffic kept the Geocoding API busy is retried with exponential backoff, and a record still shed
+ * after that fails the run rather than being written as an error.
+ *
+ * <p>When reading from and writing to files, the output is flushed to disk every 10,000 records and
+ * an {@link IngestCheckpoint} is saved next to it, so a run that dies part way through can be
+ * resumed from the last checkpoint without repeating the lookups it had already written.
+ */
+public class ReverseGeocodeIngest {
+
+  private static final Logger logger = LoggerFactory.getLogger(ReverseGeocodeIngest.class);
+
+  public static final int DEFAULT_CONCURRENCY = 32;
+  public static final int DEFAULT_PRECISION = 4;
+  public static final int DEFAULT_MAX_CACHED_CELLS = 10_000;
+  public static final int DEFAULT_LOCALITY_BUFFER = 100_000;
+
+  private static final int REORDER_WINDOW_PER_REQUEST = 64;
+  private static final int LOCALITY_PRECISION = 1;
+  private static final int CHECKPOINT_INTERVAL = 10_000;
+  private static final int SHED_RETRIES = 4;
+  private static final long SHED_BACKOFF_MILLIS = 100;
+
+  /** A single coordinate record read from the input. */
+  record CoordinateRecord(String id, double latitude, double longitude) {}
+
+  /**
+   * Statistics about a completed ingest run.
+   *
+   * @param records The number of records written.
+   * @param apiCalls The number of Geocoding API calls made.
+   * @param errors The number of records that could not be resolved.
+   * @param elapsedMillis The wall-clock duration of the run in milliseconds.
+   */
+  public record Summary(long records, long apiCalls, long errors, long elapsedMillis) {
+
+    public double recordsPerSecond() {
+      return elapsedMillis == 0 ? records : records * 1000.0 / elapsedMillis;
+    }
+  }
+
+  /**
+   * A record awaiting its result, with the input position just after its line.
+   *
+   * @param id The record id.
+   * @param inputOffset The byte offset of the next input line, or -1 if unknown.
+   * @param inputLines The number of input lines up to and including the record's line.
+   * @param result The lookup result.
+   */
+  private record Pending(
+      String id, long inputOffset, long inputLines, CompletableFuture<LocationInfo> result) {}
+
+  /** A source of input lines. */
+  private interface LineSource {
+
+    String readLine() throws IOException;
+
+    /** Gets the byte offset of the next line, or -1 if unknown. */
+    long position();
+  }
+
+  /** Counts the records a run has written. */
+  private static final class Progress {
+    private long records;
+    private long errors;
+  }
+
+  /** A record held by the scheduler, with the result its pending line waits for. */
+  private record Scheduled(CoordinateRecord record, CompletableFuture<LocationInfo> result) {}
+
+  private final GoogleApiService googleApiService;
+  private final double scale;
+  private final double localityScale;
+  private final int localityBuffer;
+  private final int window;
+  private final Semaphore permits;
+  private final Map<String, CompletableFuture<LocationInfo>> cells;
+  private final LongAdder apiCalls = new LongAdder();
+  private final LongAdder cellHits = new LongAdder();
+
+  /**
+   * Constructs a new ReverseGeocodeIngest with the default cell cache and locality buffer sizes.
+   *
+   * @param googleApiService The service used for Geocoding API calls.
+   * @param concurrency The maximum number of Geocoding API calls in flight.
+   * @param precision The number of decimal places coordinates are snapped to.
+   */
+  public ReverseGeocodeIngest(GoogleApiService googleApiService, int concurrency, int precision) {
+    this(
+        googleApiService,
+        concurrency,
+        precision,
+        DEFAULT_MAX_CACHED_CELLS,
+        DEFAULT_LOCALITY_BUFFER);
+  }
+
+  /**
+   * Constructs a new ReverseGeocodeIngest.
+   *
+   * @param googleApiService The service used for Geocoding API calls.
+   * @param concurrency The maximum number of Geocoding API calls in flight.
+   * @param precision The number of decimal places coordinates are snapped to.
+   * @param maxCachedCells The number of recently resolved grid cells kept.
+   * @param localityBuffer The number of records that may be held back to group them by area, or 0
+   *     to look records up in input order.
+   */
+  public ReverseGeocodeIngest(
+      GoogleApiService googleApiService,
+      int concurrency,
+      int precision,
+      int maxCachedCells,
+      int localityBuffer) {
+    if (localityBuffer < 0) {
+      throw new IllegalArgumentException("Invalid locality buffer: " + localityBuffer);
+    }
+    this.googleApiService = googleApiService;
+    this.scale = Math.pow(10, precision);
+    this.localityScale = Math.pow(10, Math.min(precision, LOCALITY_PRECISION));
+    this.localityBuffer = localityBuffer;
+    // The writer waits for the oldest record only once it has left the locality buffer
+    this.window = localityBuffer + concurrency * REORDER_WINDOW_PER_REQUEST;
+    this.permits = new Semaphore(concurrency);
+    this.cells =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<String, CompletableFuture<LocationInfo>> eldest) {
+            return size() > maxCachedCells;
+          }
+        };
+  }
+
+  /**
+   * Reads coordinate records until the end of the input and writes one result line per record.
+   *
+   * @param input The coordinate records, one {@code id,lat,lng} per line.
+   * @param output The writer receiving one JSON line per record.
+   * @return Statistics about the run.
+   * @throws IOException If an I/O error occurs.
+   */
+  public Summary run(BufferedReader input, Writer output) throws IOException {
+    LineSource lines =
+        new LineSource() {
+          @Override
+          public String readLine() throws IOException {
+            return input.readLine();
+          }
+
+          @Override
+          public long position() {
+            return -1;
+          }
+        };
+    return process(lines, output, null);
+  }
+
+  /**
+   * Reads coordinate records from a file and writes one result line per record to another,
+   * checkpointing progress next to the output file. Resuming seeks straight to the input offset of
+   * the last checkpoint and drops any output written after it, so only the remaining records are
+   * read and looked up.
+   *
+   * @param input The coordinate records, one {@code id,lat,lng} per line.
+   * @param output The file receiving one JSON line per record.
+   * @param resume Whether to continue from the last checkpoint instead of starting over, which
+   *     resets the checkpoint.
+   * @return Statistics about this run, not counting records written by earlier runs.
+   * @throws IOException If an I/O error occurs or the output does not match its checkpoint.
+   */
+  public Summary run(Path input, Path output, boolean resume) throws IOException {
+    Path checkpointFile = IngestCheckpoint.fileFor(output);
+    IngestCheckpoint from;
+    if (resume) {
+      from = IngestCheckpoint.load(checkpointFile).orElse(IngestCheckpoint.START);
+    } else {
+      // Reset any checkpoint of an earlier run before the output it describes is truncated, so a
+      // crash before this run's first checkpoint cannot be resumed from the earlier one
+      from = IngestCheckpoint.START;
+      from.save(checkpointFile);
+    }
+    if (from.inputLines() > 0) {
+      logger.info(
+          "Resuming after {} records ({} input lines)", from.records(), from.inputLines());
+    }
+
+    try (FileChannel inputChannel = FileChannel.open(input, StandardOpenOption.READ);
+        FileChannel outputChannel =
+            FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+      if (outputChannel.size() < from.outputBytes()) {
+        throw new IOException(
+            "Output " + output + " is shorter than its checkpoint; start over without resuming");
+      }
+      // Anything after the checkpoint may be incomplete, and its records are looked up again
+      outputChannel.truncate(from.outputBytes());
+      outputChannel.position(from.outputBytes());
+      inputChannel.position(from.inputOffset());
+
+      LineReader lines =
+          new LineReader(
+              new BufferedInputStream(Channels.newInputStream(inputChannel)), from.inputOffset());
+      Writer writer =
+          new BufferedWriter(
+              new OutputStreamWriter(
+                  Channels.newOutputStream(outputChannel), StandardCharsets.UTF_8));
+      return process(lines, writer, new Checkpointer(checkpointFile, outputChannel, writer, from));
+    }
+  }
+
+  private Summary process(LineSource input, Writer output, Checkpointer checkpointer)
+      throws IOException {
+    long start = System.nanoTime();
+    Progress progress = new Progress();
+    Deque<Pending> pending = new ArrayDeque<>();
+    LocalityScheduler<Scheduled> scheduler =
+        localityBuffer > 0
+            ? new LocalityScheduler<>(scheduled -> localityKey(scheduled.record()), localityBuffer)
+            : null;
+
+    ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    try (executor) {
+      try {
+        String line;
+        long lineNumber = checkpointer != null ? checkpointer.from.inputLines() : 0;
+        while ((line = input.readLine()) != null) {
+          lineNumber++;
+          if (line.isBlank()) {
+            continue;
+          }
+          CoordinateRecord record = parseRecord(line);
+          if (record == null) {
+            if (lineNumber > 1) {
+              logger.warn("Skipping malformed coordinate record on line {}: {}", lineNumber, line);
+            }
+            continue;
+          }
+          CompletableFuture<LocationInfo> result;
+          if (scheduler != null) {
+            result = new CompletableFuture<>();
+            dispatch(scheduler.add(new Scheduled(record, result)), executor);
+          } else {
+            result = resolve(record, executor);
+          }
+          pending.add(new Pending(record.id(), input.position(), lineNumber, result));
+          if (pending.size() >= window) {
+            writeNext(pending, output, progress, checkpointer);
+          }
+        }
+        if (scheduler != null) {
+          dispatch(scheduler.drain(), executor);
+        }
+        while (!pending.isEmpty()) {
+          writeNext(pending, output, progress, checkpointer);
+        }
+        output.flush();
+        if (checkpointer != null) {
+          checkpointer.save(input.position(), lineNumber, progress);
+        }
+      } catch (IOException | RuntimeException e) {
+        // Stop the lookups still in flight rather than letting close() wait for all of them
+        for (Pending unwritten : pending) {
+          unwritten.result().cancel(true);
+        }
+        executor.shutdownNow();
+        throw e;
+      }
+    }
+
+    Summary summary =
+        new Summary(
+            progress.records,
+            apiCalls.sum(),
+            progress.errors,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    logger.info(
+        "Reverse geocoded {} records with {} API calls and {} cell cache hits ({} errors) at {}"
+            + " records/s",
+        summary.records(),
+        summary.apiCalls(),
+        cellHits.sum(),
+        summary.errors(),
+        String.format("%.1f", summary.recordsPerSecond()));
+    logger.info(
+        "Geocoding API concurrency limit settled at {}",
+        googleApiService.getConcurrencyLimit(GoogleEndpoint.GEOCODING));
+    return summary;
+  }
+
+  /**
+   * Parses an {@code id,lat,lng} line.
+   *
+   * @param line The input line.
+   * @return The record, or null if the line is malformed (for example, a header).
+   */
+  static CoordinateRecord parseRecord(String line) {
+    String[] fields = line.split(",");
+    if (fields.length != 3) {
+      return null;
+    }
+    try {
+      return new CoordinateRecord(
+          fields[0].trim(),
+          Double.parseDouble(fields[1].trim()),
+          Double.parseDouble(fields[2].trim()));
+    } catch (NumberFormatException e) {
+      return null;
+    }
+  }
+
+  /** Gets the coarse grid cell a record is scheduled by. */
+  private String localityKey(CoordinateRecord record) {
+    return Math.floor(record.latitude() * localityScale)
+        + ":"
+        + Math.floor(record.longitude() * localityScale);
+  }
+
+  /** Starts the lookups for records released by the scheduler. */
+  private void dispatch(List<Scheduled> released, ExecutorService executor) {
+    for (Scheduled scheduled : released) {
+      resolve(scheduled.record(), executor)
+          .whenComplete(
+              (info, error) -> {
+                if (error != null) {
+                  scheduled.result().completeExceptionally(error);
+                } else {
+                  scheduled.result().complete(info);
+                }
+              });
+    }
+  }
+
+  /**
+   * Returns the lookup for the grid cell containing the record, starting it if no other record in
+   * that cell has been seen recently.
+   */
+  private CompletableFuture<LocationInfo> resolve(
+      CoordinateRecord record, ExecutorService executor) {
+    long latCell = Math.round(record.latitude() * scale);
+    long lngCell = Math.round(record.longitude() * scale);
+    String cellKey = latCell + ":" + lngCell;
+
+    CompletableFuture<LocationInfo> result;
+    synchronized (cells) {
+      result = cells.get(cellKey);
+      if (result != null) {
+        cellHits.increment();
+        return result;
+      }
+      result =
+          CompletableFuture.supplyAsync(() -> lookup(latCell / scale, lngCell / scale), executor);
+      cells.put(cellKey, result);
+    }
+    result.whenComplete(
+        (info, error) -> {
+          if (error != null) {
+            // Let a later record in the same cell retry
+            synchronized (cells) {
+              cells.remove(cellKey);
+            }
+          }
+        });
+    return result;
+  }
+
+  @SuppressWarnings("try")
+  private LocationInfo lookup(double latitude, double longitude) {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+    try (RequestClass.Scope scope = RequestClass.BULK.enter()) {
+      for (int attempt = 0; ; attempt++) {
+        apiCalls.increment();
+        try {
+          LocationInfo locationInfo = new LocationInfo();
+          GeocodingParser.parseInto(
+              googleApiService.getGeocodingData(latitude, longitude), locationInfo);
+          return locationInfo;
+        } catch (GoogleApiException e) {
+          if (!isShed(e) || attempt == SHED_RETRIES) {
+            throw e;
+          }
+          // A shed request never reached Google
+          apiCalls.decrement();
+          long backoffMillis = SHED_BACKOFF_MILLIS << attempt;
+          logger.debug(
+              "Geocoding of {},{} was shed; retrying in {} ms", latitude, longitude, backoffMillis);
+          Thread.sleep(backoffMillis);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    } catch (Exception e) {
+      throw new CompletionException(e);
+    } finally {
+      permits.release();
+    }
+  }
+
+  private static boolean isShed(Throwable error) {
+    return error instanceof GoogleApiException e
+        && e.getStatusCode().equals(GoogleApiService.LOAD_SHED_STATUS);
+  }
+
+  /** Writes the oldest pending record, saving a checkpoint every {@code CHECKPOINT_INTERVAL}. */
+  private void writeNext(
+      Deque<Pending> pending, Writer output, Progress progress, Checkpointer checkpointer)
+      throws IOException {
+    Pending next = pending.poll();
+    progress.errors += write(next, output);
+    progress.records++;
+    if (checkpointer != null && progress.records % CHECKPOINT_INTERVAL == 0) {
+      checkpointer.save(next.inputOffset(), next.inputLines(), progress);
+    }
+  }
+
+  /**
+   * Waits for a pending record and writes its result line. A record whose lookup was still shed
+   * after every retry is not written as an error, since Google never saw it; the run fails instead,
+   * so the last checkpoint stays before the record and resuming looks it up again.
+   *
+   * @return 1 if the record could not be resolved, 0 otherwise.
+   * @throws IOException If an I/O error occurs or the record's lookup was shed.
+   */
+  private int write(Pending pending, Writer output) throws IOException {
+    JSONObject json = new JSONObject().put("id", pending.id());
+    int error = 0;
+    try {
+      LocationInfo info = pending.result().get();
+      json.put("country", info.getCountry().orElse(null))
+          .put("state", info.getState().orElse(null))
+          .put("city", info.getCity().orElse(null))
+          .put("address", info.getAddress().orElse(null))
+          .put("pinCode", info.getPinCode().orElse(null));
+    } catch (ExecutionException e) {
+      if (isShed(e.getCause())) {
+        throw new IOException(
+            "Geocoding API kept shedding record " + pending.id() + "; resume the run later",
+            e.getCause());
+      }
+      json.put("error", String.valueOf(e.getCause().getMessage()));
+      error = 1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for a geocoding result", e);
+    }
+    output.write(json.toString());
+    output.write(System.lineSeparator());
+    return error;
+  }
+
+  /** Makes the output durable and records in a checkpoint how far it goes. */
+  private static final class Checkpointer {
+    private final Path file;
+    private final FileChannel outputChannel;
+    private final Writer output;
+    private final IngestCheckpoint from;
+
+    Checkpointer(Path file, FileChannel outputChannel, Writer output, IngestCheckpoint from) {
+      this.file = file;
+      this.outputChannel = outputChannel;
+      this.output = output;
+      this.from = from;
+    }
+
+    void save(long inputOffset, long inputLines, Progress progress) throws IOException {
+      output.flush();
+      outputChannel.force(false);
+      new IngestCheckpoint(
+              inputOffset,
+              inputLines,
+              outputChannel.position(),
+              from.records() + progress.records,
+              from.errors() + progress.errors)
+          .save(file);
+    }
+  }
+
+  /**
+   * Reads UTF-8 lines from a stream, keeping track of the byte offset of the next line so it can be
+   * checkpointed.
+   */
+  private static final class LineReader implements LineSource {
+    private final InputStream in;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private long position;
+
+    LineReader(InputStream in, long position) {
+      this.in = in;
+      this.position = position;
+    }
+
+    @Override
+    public String readLine() throws IOException {
+      line.reset();
+      int b;
+      while ((b = in.read()) != -1) {
+        position++;
+        if (b == '\n') {
+          break;
+        }
+        line.write(b);
+      }
+      if (b == -1 && line.size() == 0) {
+        return null;
+      }
+      String text = line.toString(StandardCharsets.UTF_8);
+      return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    @Override
+    public long position() {
+      return position;
+    }
+  }
+}
@@ -3,6 +3,8 @@ package org.demo.exception;
 /** A custom exception class for Google API errors. */
 public class GoogleApiException extends Exception {
 
+  private static final long serialVersionUID = 1L;
+
   private final String statusCode;
 
   /**
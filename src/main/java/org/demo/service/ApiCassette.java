@@ -0,0 +1,162 @@
+package org.demo.service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The ApiCassette class records Google API exchanges to a local file and replays them without
+ * network access. Each exchange is stored as one JSON line; files ending in ".gz" are compressed.
+ *
+ * <p>During replay, exchanges for the same request key are returned in the order they were
+ * recorded. Once only the last one is left, it is returned for every further request with that key.
+ */
+public class ApiCassette implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(ApiCassette.class);
+
+  /** The operating mode of a cassette. */
+  public enum Mode {
+    RECORD,
+    REPLAY
+  }
+
+  private final Path path;
+  private final Mode mode;
+  private final boolean simulateLatency;
+  private final Map<String, Deque<ApiExchange>> recorded = new HashMap<>();
+  private BufferedWriter writer;
+
+  private ApiCassette(Path path, Mode mode, boolean simulateLatency) {
+    this.path = path;
+    this.mode = mode;
+    this.simulateLatency = simulateLatency;
+  }
+
+  /**
+   * Opens a cassette that records every exchange to the given file, replacing its contents.
+   *
+   * @param path The cassette file.
+   * @return The recording cassette.
+   * @throws IOException If the file cannot be created.
+   */
+  public static ApiCassette record(Path path) throws IOException {
+    ApiCassette cassette = new ApiCassette(path, Mode.RECORD, false);
+    OutputStream out = Files.newOutputStream(path);
+    if (isCompressed(path)) {
+      out = new GZIPOutputStream(out);
+    }
+    cassette.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    logger.info("Recording Google API exchanges to {}", path);
+    return cassette;
+  }
+
+  /**
+   * Opens a cassette that replays the exchanges stored in the given file.
+   *
+   * @param path The cassette file.
+   * @param simulateLatency Whether replayed exchanges should wait for their recorded latency.
+   * @return The replaying cassette.
+   * @throws IOException If the file cannot be read.
+   */
+  public static ApiCassette replay(Path path, boolean simulateLatency) throws IOException {
+    ApiCassette cassette = new ApiCassette(path, Mode.REPLAY, simulateLatency);
+    InputStream in = Files.newInputStream(path);
+    if (isCompressed(path)) {
+      in = new GZIPInputStream(in);
+    }
+    int count = 0;
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank()) {
+          ApiExchange exchange = ApiExchange.fromJson(new JSONObject(line));
+          cassette.recorded.computeIfAbsent(exchange.key(), k -> new ArrayDeque<>()).add(exchange);
+          count++;
+        }
+      }
+    }
+    logger.info("Loaded {} Google API exchanges from {}", count, path);
+    return cassette;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Appends an exchange to the cassette file.
+   *
+   * @param exchange The exchange to record.
+   * @throws IOException If an I/O error occurs.
+   */
+  public synchronized void record(ApiExchange exchange) throws IOException {
+    if (mode != Mode.RECORD) {
+      throw new IllegalStateException("Cassette " + path + " is not recording");
+    }
+    writer.write(exchange.toJson().toString());
+    writer.newLine();
+  }
+
+  /**
+   * Returns the next recorded exchange for the given request key.
+   *
+   * @param key The request key.
+   * @return The recorded exchange.
+   * @throws IOException If no exchange was recorded for the key.
+   */
+  public ApiExchange replay(String key) throws IOException {
+    ApiExchange exchange;
+    synchronized (this) {
+      Deque<ApiExchange> exchanges = recorded.get(key);
+      if (exchanges == null) {
+        throw new IOException("No recorded exchange in " + path + " for request: " + key);
+      }
+      exchange = exchanges.size() > 1 ? exchanges.poll() : exchanges.peek();
+    }
+    if (simulateLatency && exchange.latencyMillis() > 0) {
+      try {
+        Thread.sleep(exchange.latencyMillis());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while replaying request: " + key, e);
+      }
+    }
+    return exchange;
+  }
+
+  private static boolean isCompressed(Path path) {
+    return path.getFileName().toString().endsWith(".gz");
+  }
+
+  /**
+   * Flushes and closes the cassette file when recording.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package org.demo.service;
+
+import org.json.JSONObject;
+
+/**
+ * A single request/response exchange with a Google API, as captured by an {@link ApiCassette}.
+ *
+ * @param key The request key: HTTP method and URL with the API key removed.
+ * @param statusCode The HTTP status code of the response.
+ * @param body The raw response body.
+ * @param latencyMillis The observed round-trip latency in milliseconds.
+ */
+public record ApiExchange(String key, int statusCode, String body, long latencyMillis) {
+
+  /**
+   * Converts this exchange to a single-line JSON object.
+   *
+   * @return The JSON representation of this exchange.
+   */
+  public JSONObject toJson() {
+    return new JSONObject()
+        .put("key", key)
+        .put("status", statusCode)
+        .put("latency", latencyMillis)
+        .put("body", body);
+  }
+
+  /**
+   * Creates an exchange from its JSON representation.
+   *
+   * @param json The JSON object produced by {@link #toJson()}.
+   * @return The exchange.
+   */
+  public static ApiExchange fromJson(JSONObject json) {
+    return new ApiExchange(
+        json.getString("key"),
+        json.getInt("status"),
+        json.getString("body"),
+        json.optLong("latency", 0));
+  }
+}
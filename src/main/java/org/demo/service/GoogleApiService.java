@@ -2,17 +2,47 @@ package org.demo.service;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
 import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.util.Timeout;
 import org.demo.exception.GoogleApiException;
+import org.demo.service.cache.LruResponseCache;
+import org.demo.service.cache.ResponseCache;
+import org.demo.service.cache.TieredResponseCache;
+import org.demo.service.resilience.AdaptiveConcurrencyLimiter;
+import org.demo.service.resilience.CircuitBreaker;
+import org.demo.service.resilience.LatencyTracker;
+import org.demo.trace.ApiCallEvent;
+import org.demo.trace.CacheDecisionEvent;
+import org.demo.trace.ParseEvent;
+import org.demo.trace.TraceSpan;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -26,14 +56,43 @@ public class GoogleApiService implements Closeable {
 
   private static final Logger logger = LoggerFactory.getLogger(GoogleApiService.class);
 
-  private static final String AUTOCOMPLETE_URL =
-      "https://maps.googleapis.com/maps/api/place/autocomplete/json";
-  private static final String GEOCODING_URL = "https://maps.googleapis.com/maps/api/geocode/json";
-  private static final String GEOLOCATION_URL =
-      "https://www.googleapis.com/geolocation/v1/geolocate";
+  /** The default maximum number of pooled connections per Google host. */
+  public static final int DEFAULT_MAX_CONNECTIONS = 5;
+
+  /** The status of a GoogleApiException thrown when an endpoint's circuit breaker is open. */
+  public static final String CIRCUIT_OPEN_STATUS = "CIRCUIT_OPEN";
+
+  /**
+   * The status of a GoogleApiException thrown when a request could not be sent within its {@link
+   * RequestClass}'s queue deadline.
+   */
+  public static final String LOAD_SHED_STATUS = "LOAD_SHED";
+
+  private static final int LOCAL_CACHE_ENTRIES = 10_000;
+
+  private static final int LATENCY_WINDOW = 200;
+  private static final int MIN_HEDGE_SAMPLES = 20;
+  private static final long MIN_HEDGE_DELAY_MILLIS = 50;
+  private static final double HEDGE_PERCENTILE = 0.95;
+
+  private static final int BREAKER_WINDOW = 20;
+  private static final double BREAKER_FAILURE_RATE = 0.5;
+  private static final int BREAKER_MINIMUM_CALLS = 10;
+  private static final Duration BREAKER_OPEN_DURATION = Duration.ofSeconds(30);
+
+  private static final int INITIAL_CONCURRENCY_LIMIT = 10;
 
   private final String apiKey;
   private final CloseableHttpClient httpClient;
+  private final ApiCassette cassette;
+  private final ResponseCache cache;
+  private final Map<GoogleEndpoint, LatencyTracker> latencyTrackers =
+      new EnumMap<>(GoogleEndpoint.class);
+  private final Map<GoogleEndpoint, CircuitBreaker> circuitBreakers =
+      new EnumMap<>(GoogleEndpoint.class);
+  // Keyed by host, since endpoints on one host share that route's pooled connections
+  private final Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters = new HashMap<>();
+  private final ExecutorService hedgeExecutor = Executors.newVirtualThreadPerTaskExecutor();
 
   /**
    * Constructs a new GoogleApiService with the specified API key.
@@ -41,8 +100,81 @@ public class GoogleApiService implements Closeable {
    * @param apiKey The Google API key.
    */
   public GoogleApiService(String apiKey) {
+    this(apiKey, null);
+  }
+
+  /**
+   * Constructs a new GoogleApiService that records or replays its API exchanges.
+   *
+   * @param apiKey The Google API key.
+   * @param cassette The cassette to record to or replay from, or null to always use the network.
+   */
+  public GoogleApiService(String apiKey, ApiCassette cassette) {
+    this(apiKey, cassette, DEFAULT_MAX_CONNECTIONS);
+  }
+
+  /**
+   * Constructs a new GoogleApiService whose connection pool allows the given number of concurrent
+   * requests per Google host. The number of requests actually in flight to each host adapts to its
+   * observed latency, up to this maximum.
+   *
+   * @param apiKey The Google API key.
+   * @param cassette The cassette to record to or replay from, or null to always use the network.
+   * @param maxConnections The maximum number of pooled connections per Google host.
+   */
+  public GoogleApiService(String apiKey, ApiCassette cassette, int maxConnections) {
+    this(apiKey, cassette, maxConnections, null);
+  }
+
+  /**
+   * Constructs a new GoogleApiService with a second-level cache, such as an off-heap cache or one
+   * shared with other instances. Successful responses are always cached in process; the
+   * second-level cache is consulted on a local miss and receives every new response.
+   *
+   * @param apiKey The Google API key.
+   * @param cassette The cassette to record to or replay from, or null to always use the network.
+   * @param maxConnections The maximum number of pooled connections per Google host.
+   * @param secondLevelCache The cache behind the in-process one, or null for none.
+   */
+  public GoogleApiService(
+      String apiKey, ApiCassette cassette, int maxConnections, ResponseCache secondLevelCache) {
     this.apiKey = apiKey;
-    this.httpClient = HttpClients.createDefault();
+    this.cassette = cassette;
+    ResponseCache localCache = new LruResponseCache(LOCAL_CACHE_ENTRIES);
+    this.cache =
+        secondLevelCache != null
+            ? new TieredResponseCache(localCache, secondLevelCache)
+            : localCache;
+    int maxConcurrency = Math.max(1, maxConnections);
+    for (GoogleEndpoint endpoint : GoogleEndpoint.values()) {
+      latencyTrackers.put(endpoint, new LatencyTracker(LATENCY_WINDOW));
+      circuitBreakers.put(
+          endpoint,
+          new CircuitBreaker(
+              endpoint.name(),
+              BREAKER_WINDOW,
+              BREAKER_FAILURE_RATE,
+              BREAKER_MINIMUM_CALLS,
+              BREAKER_OPEN_DURATION,
+              System::nanoTime));
+      concurrencyLimiters.computeIfAbsent(
+          endpoint.getHost(),
+          host ->
+              new AdaptiveConcurrencyLimiter(
+                  host,
+                  Math.min(INITIAL_CONCURRENCY_LIMIT, maxConcurrency),
+                  1,
+                  maxConcurrency,
+                  RequestClass.values().length));
+    }
+    this.httpClient =
+        HttpClients.custom()
+            .setConnectionManager(
+                PoolingHttpClientConnectionManagerBuilder.create()
+                    .setMaxConnPerRoute(maxConnections)
+                    .setMaxConnTotal(maxConnections * 3)
+                    .build())
+            .build();
   }
 
   /**
@@ -56,15 +188,90 @@ public class GoogleApiService implements Closeable {
    */
   public JSONArray getPredictions(String input, String type)
       throws IOException, GoogleApiException {
-    String encodedInput = URLEncoder.encode(input, StandardCharsets.UTF_8);
-    String url = AUTOCOMPLETE_URL + "?input=" + encodedInput + "&key=" + apiKey + "&type=" + type;
+    return getPredictions(input, type, PlaceQueryContext.NONE);
+  }
 
-    String jsonResponse = makeApiCall(url);
-    JSONObject response = new JSONObject(jsonResponse);
+  /**
+   * Retrieves predictions narrowed by what is already known about the place. The session token is
+   * not part of the cache key, so sessions share cached predictions.
+   *
+   * @param input The user's input.
+   * @param type The type parameter for the API call.
+   * @param context The country restriction, location bias and session token to send.
+   * @return A JSONArray of predictions.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If the API returns an error status.
+   */
+  public JSONArray getPredictions(String input, String type, PlaceQueryContext context)
+      throws IOException, GoogleApiException {
+    String url = buildPredictionsUrl(input, type, context);
+    return getJson(new HttpGet(URI.create(url)), url).getJSONArray("predictions");
+  }
 
-    handleApiStatus(response);
+  /**
+   * Retrieves predictions asynchronously on the given executor. Cancelling the returned future
+   * aborts the HTTP request if it is still in flight. The request belongs to the calling thread's
+   * {@link RequestClass}.
+   *
+   * @param input The user's input.
+   * @param type The type parameter for the API call.
+   * @param executor The executor to run the request on.
+   * @return A future completing with the JSONArray of predictions.
+   */
+  public CompletableFuture<JSONArray> getPredictionsAsync(
+      String input, String type, Executor executor) {
+    return getPredictionsAsync(input, type, PlaceQueryContext.NONE, executor);
+  }
 
-    return response.getJSONArray("predictions");
+  /**
+   * Retrieves predictions narrowed by what is already known about the place asynchronously on the
+   * given executor, as {@link #getPredictionsAsync(String, String, Executor)} does.
+   *
+   * @param input The user's input.
+   * @param type The type parameter for the API call.
+   * @param context The country restriction, location bias and session token to send.
+   * @param executor The executor to run the request on.
+   * @return A future completing with the JSONArray of predictions.
+   */
+  @SuppressWarnings("try")
+  public CompletableFuture<JSONArray> getPredictionsAsync(
+      String input, String type, PlaceQueryContext context, Executor executor) {
+    String url = buildPredictionsUrl(input, type, context);
+    HttpGet request = new HttpGet(URI.create(url));
+    RequestClass requestClass = RequestClass.current();
+    TraceSpan span = TraceSpan.current();
+    CompletableFuture<JSONArray> future = new CompletableFuture<>();
+    future.whenComplete(
+        (predictions, error) -> {
+          if (future.isCancelled()) {
+            request.cancel();
+          }
+        });
+    executor.execute(
+        () -> {
+          if (future.isDone()) {
+            return;
+          }
+          try (RequestClass.Scope scope = requestClass.enter();
+              TraceSpan joined = TraceSpan.join(span)) {
+            future.complete(getJson(request, url).getJSONArray("predictions"));
+          } catch (Exception e) {
+            future.completeExceptionally(e);
+          }
+        });
+    return future;
+  }
+
+  private String buildPredictionsUrl(String input, String type, PlaceQueryContext context) {
+    String encodedInput = URLEncoder.encode(input, StandardCharsets.UTF_8);
+    return GoogleEndpoint.AUTOCOMPLETE.getUrl()
+        + "?input="
+        + encodedInput
+        + "&key="
+        + apiKey
+        + "&type="
+        + type
+        + context.toQueryParameters();
   }
 
   /**
@@ -74,33 +281,46 @@ public class GoogleApiService implements Closeable {
    * @throws IOException If an I/O error occurs.
    */
   public JSONObject getGeolocation() throws IOException {
-    String url = GEOLOCATION_URL + "?key=" + apiKey;
+    String url = GoogleEndpoint.GEOLOCATION.getUrl() + "?key=" + apiKey;
     HttpPost httpPost = new HttpPost(url);
     httpPost.setHeader("Content-Type", "application/json");
     httpPost.setEntity(new StringEntity("{}"));
 
-    try (var response = httpClient.execute(httpPost)) {
-      int statusCode = response.getCode();
-      String responseBody = EntityUtils.toString(response.getEntity());
-      JSONObject jsonResponse = new JSONObject(responseBody);
-
-      if (statusCode != 200) {
-        // The Geolocation API returns errors in an "error" object
-        if (jsonResponse.has("error")) {
-          JSONObject error = jsonResponse.getJSONObject("error");
-          String message = error.optString("message", "Unknown error");
-          logger.error("Error from Geolocation API: {}", message);
-          throw new IOException("Error from Geolocation API: " + message);
-        } else {
-          logger.error("Unexpected response from Geolocation API: {}", responseBody);
-          throw new IOException("Unexpected response from Geolocation API");
-        }
+    CircuitBreaker circuitBreaker = circuitBreakers.get(GoogleEndpoint.GEOLOCATION);
+    if (!circuitBreaker.tryAcquire()) {
+      throw new IOException("Geolocation API is temporarily unavailable");
+    }
+    ApiExchange exchange;
+    try {
+      exchange = execute(httpPost, url, RequestClass.current());
+    } catch (LoadShedException e) {
+      circuitBreaker.onIgnored();
+      throw e;
+    } catch (IOException e) {
+      circuitBreaker.onFailure();
+      throw e;
+    }
+    if (exchange.statusCode() >= 500 || exchange.statusCode() == 429) {
+      circuitBreaker.onFailure();
+    } else {
+      circuitBreaker.onSuccess();
+    }
+    String responseBody = exchange.body();
+    JSONObject jsonResponse = parseJson(responseBody, GoogleEndpoint.GEOLOCATION);
+
+    if (exchange.statusCode() != 200) {
+      // The Geolocation API returns errors in an "error" object
+      if (jsonResponse.has("error")) {
+        JSONObject error = jsonResponse.getJSONObject("error");
+        String message = error.optString("message", "Unknown error");
+        logger.error("Error from Geolocation API: {}", message);
+        throw new IOException("Error from Geolocation API: " + message);
+      } else {
+        logger.error("Unexpected response from Geolocation API: {}", responseBody);
+        throw new IOException("Unexpected response from Geolocation API");
       }
-      return jsonResponse;
-    } catch (ParseException e) {
-      logger.error("Error parsing geolocation response", e);
-      throw new IOException("Error parsing geolocation response", e);
     }
+    return jsonResponse;
   }
 
   /**
@@ -115,13 +335,10 @@ public class GoogleApiService implements Closeable {
   public JSONObject getGeocodingData(double latitude, double longitude)
       throws IOException, GoogleApiException {
     String url =
-        String.format("%s?latlng=%s,%s&key=%s", GEOCODING_URL, latitude, longitude, apiKey);
-    String jsonResponse = makeApiCall(url);
-    JSONObject response = new JSONObject(jsonResponse);
-
-    handleApiStatus(response);
-
-    return response;
+        String.format(
+            "%s?latlng=%s,%s&key=%s",
+            GoogleEndpoint.GEOCODING.getUrl(), latitude, longitude, apiKey);
+    return getJson(new HttpGet(URI.create(url)), url);
   }
 
   /**
@@ -157,22 +374,457 @@ public class GoogleApiService implements Closeable {
   }
 
   /**
-   * Makes an API call to the specified URL and returns the response as a string.
+   * Gets a JSON response, from the cache if possible. Responses with a successful status are
+   * cached. Calls to an endpoint whose circuit breaker is open fail fast with a
+   * GoogleApiException whose status is {@link #CIRCUIT_OPEN_STATUS}, and calls that cannot be sent
+   * within their request class's queue deadline with one whose status is {@link
+   * #LOAD_SHED_STATUS}.
    *
+   * @param request The GET request.
+   * @param url The URL of the request.
+   * @return The JSON response.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If the API returns an error status or the endpoint is unavailable.
+   */
+  private JSONObject getJson(HttpGet request, String url) throws IOException, GoogleApiException {
+    String key = requestKey(request, url);
+    GoogleEndpoint endpoint = GoogleEndpoint.fromUrl(url);
+    CacheDecisionEvent cacheEvent = new CacheDecisionEvent();
+    cacheEvent.begin();
+    Optional<String> cached = cache.get(key);
+    cacheEvent.end();
+    if (cacheEvent.shouldCommit()) {
+      cacheEvent.spanId = TraceSpan.currentId();
+      cacheEvent.key = key;
+      cacheEvent.hit = cached.isPresent();
+      cacheEvent.commit();
+    }
+    if (cached.isPresent()) {
+      logger.debug("Cache hit for {}", key);
+      TraceSpan.countCacheHit();
+      return parseJson(cached.get(), endpoint);
+    }
+
+    CircuitBreaker circuitBreaker = circuitBreakers.get(endpoint);
+    if (!circuitBreaker.tryAcquire()) {
+      throw new GoogleApiException(
+          CIRCUIT_OPEN_STATUS, "Google " + endpoint + " API is temporarily unavailable.");
+    }
+
+    RequestClass requestClass = RequestClass.current();
+    String jsonResponse;
+    JSONObject response;
+    try {
+      ApiExchange exchange = makeApiCall(request, url, requestClass);
+      handleHttpStatus(exchange.statusCode(), endpoint);
+      jsonResponse = exchange.body();
+      response = parseJson(jsonResponse, endpoint);
+      handleApiStatus(response);
+    } catch (LoadShedException e) {
+      circuitBreaker.onIgnored();
+      logger.debug("Shed {} request {}", requestClass, redactApiKey(url));
+      throw new GoogleApiException(
+          LOAD_SHED_STATUS, "Google " + endpoint + " API is too busy for this request.");
+    } catch (GoogleApiException e) {
+      if (isEndpointFailure(e.getStatusCode())) {
+        circuitBreaker.onFailure();
+      } else {
+        circuitBreaker.onSuccess();
+      }
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      circuitBreaker.onFailure();
+      throw e;
+    }
+    circuitBreaker.onSuccess();
+
+    cache.put(key, jsonResponse);
+    return response;
+  }
+
+  /**
+   * Parses a response body, recording a ParseEvent.
+   *
+   * @param body The response body.
+   * @param endpoint The endpoint the response came from.
+   * @return The parsed JSON.
+   */
+  private static JSONObject parseJson(String body, GoogleEndpoint endpoint) {
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    try {
+      return new JSONObject(body);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.spanId = TraceSpan.currentId();
+        event.target = endpoint + " JSON";
+        event.inputBytes = body.getBytes(StandardCharsets.UTF_8).length;
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Checks whether an error status indicates that the endpoint itself is unhealthy, as opposed to a
+   * problem with the particular request.
+   */
+  private static boolean isEndpointFailure(String status) {
+    return status.equals("UNKNOWN_ERROR") || status.equals("OVER_QUERY_LIMIT");
+  }
+
+  /**
+   * Fails a request whose HTTP status says the endpoint is throttling or failing, before its body
+   * is parsed. Throttling is reported as OVER_QUERY_LIMIT and server errors as UNKNOWN_ERROR, so
+   * both count as endpoint failures for the circuit breaker.
+   *
+   * @param statusCode The HTTP status code of the response.
+   * @param endpoint The endpoint the response came from.
+   * @throws GoogleApiException If the status is 429 or 5xx.
+   */
+  private static void handleHttpStatus(int statusCode, GoogleEndpoint endpoint)
+      throws GoogleApiException {
+    if (statusCode == 429) {
+      logger.error("Google {} API is throttling requests (HTTP 429)", endpoint);
+      throw new GoogleApiException(
+          "OVER_QUERY_LIMIT", "Google " + endpoint + " API is throttling requests.");
+    }
+    if (statusCode >= 500) {
+      logger.error("Google {} API failed with HTTP {}", endpoint, statusCode);
+      throw new GoogleApiException(
+          "UNKNOWN_ERROR", "Google " + endpoint + " API failed with HTTP " + statusCode + ".");
+    }
+  }
+
+  /**
+   * Makes an API call to the specified URL and returns the exchange. Once enough
+   * latencies have been observed for the endpoint, an interactive request that is still pending
+   * after the observed p95 latency is hedged with a duplicate, and the first response wins. Bulk
+   * and prefetch requests are never hedged, so they do not add load when it matters most.
+   *
+   * @param request The GET request.
    * @param url The URL to call.
-   * @return The API response as a string.
+   * @param requestClass The class of the request.
+   * @return The exchange holding the response status and body.
    * @throws IOException If an I/O error occurs.
    */
-  private String makeApiCall(String url) throws IOException {
-    HttpGet request = new HttpGet(URI.create(url));
+  private ApiExchange makeApiCall(HttpGet request, String url, RequestClass requestClass)
+      throws IOException {
+    LatencyTracker latencyTracker = latencyTrackers.get(GoogleEndpoint.fromUrl(url));
+    if (requestClass != RequestClass.INTERACTIVE
+        || latencyTracker.getSampleCount() < MIN_HEDGE_SAMPLES
+        || isReplaying()) {
+      return execute(request, url, requestClass);
+    }
+    long hedgeDelayMillis =
+        Math.max(MIN_HEDGE_DELAY_MILLIS, latencyTracker.percentile(HEDGE_PERCENTILE));
+    return executeHedged(request, url, requestClass, hedgeDelayMillis);
+  }
+
+  /**
+   * Executes an idempotent GET request, sending a duplicate if the first has not completed within
+   * the hedge delay. The request that loses the race is cancelled.
+   *
+   * @param request The GET request.
+   * @param url The URL of the request.
+   * @param requestClass The class of the request.
+   * @param hedgeDelayMillis How long to wait before sending the duplicate.
+   * @return The first successful exchange.
+   * @throws IOException If both requests fail.
+   */
+  private ApiExchange executeHedged(
+      HttpGet request, String url, RequestClass requestClass, long hedgeDelayMillis)
+      throws IOException {
+    CompletableFuture<ApiExchange> primary = executeAsync(request, url, requestClass);
+    try {
+      return primary.get(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      logger.debug("Hedging request {} after {} ms", redactApiKey(url), hedgeDelayMillis);
+    } catch (ExecutionException e) {
+      throw asIOException(e.getCause());
+    } catch (InterruptedException e) {
+      request.cancel();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + redactApiKey(url));
+    }
+
+    HttpGet hedge = new HttpGet(URI.create(url));
+    CompletableFuture<ApiExchange> duplicate = executeAsync(hedge, url, requestClass);
+    CompletableFuture<ApiExchange> winner = new CompletableFuture<>();
+    AtomicInteger failures = new AtomicInteger();
+    BiConsumer<ApiExchange, Throwable> race =
+        (exchange, error) -> {
+          if (error == null) {
+            winner.complete(exchange);
+          } else if (failures.incrementAndGet() == 2) {
+            winner.completeExceptionally(error);
+          }
+        };
+    primary.whenComplete(race);
+    duplicate.whenComplete(race);
+    try {
+      return winner.get();
+    } catch (ExecutionException e) {
+      throw asIOException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for " + redactApiKey(url));
+    } finally {
+      request.cancel();
+      hedge.cancel();
+    }
+  }
+
+  @SuppressWarnings("try")
+  private CompletableFuture<ApiExchange> executeAsync(
+      HttpGet request, String url, RequestClass requestClass) {
+    TraceSpan span = TraceSpan.current();
+    return CompletableFuture.supplyAsync(
+        () -> {
+          try (TraceSpan joined = TraceSpan.join(span)) {
+            return execute(request, url, requestClass);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        },
+        hedgeExecutor);
+  }
+
+  private static IOException asIOException(Throwable error) {
+    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+    if (cause instanceof IOException ioException) {
+      return ioException;
+    }
+    if (cause instanceof RuntimeException runtimeException) {
+      throw runtimeException;
+    }
+    return new IOException(cause);
+  }
+
+  private boolean isReplaying() {
+    return cassette != null && cassette.getMode() == ApiCassette.Mode.REPLAY;
+  }
+
+  /**
+   * Executes an HTTP request, or replays it from the cassette when one is replaying. When the
+   * cassette is recording, the exchange is appended to it. The request waits in its class's lane
+   * of the endpoint's concurrency limiter, and its response timeout is the class's.
+   *
+   * @param request The request to execute.
+   * @param url The URL of the request.
+   * @param requestClass The class of the request.
+   * @return The exchange holding the response status, body and observed latency.
+   * @throws LoadShedException If the request could not be sent within its queue deadline.
+   * @throws IOException If an I/O error occurs or no recorded exchange exists for the request.
+   */
+  private ApiExchange execute(HttpUriRequestBase request, String url, RequestClass requestClass)
+      throws IOException {
+    ApiCallEvent event = new ApiCallEvent();
+    event.begin();
+    String outcome = "ERROR";
+    ApiExchange exchange = null;
+    try {
+      exchange = send(request, url, requestClass, event);
+      outcome = "OK";
+      return exchange;
+    } catch (LoadShedException e) {
+      outcome = "SHED";
+      throw e;
+    } catch (IOException e) {
+      outcome = request.isCancelled() ? "CANCELLED" : "ERROR";
+      throw e;
+    } finally {
+      if (!outcome.equals("SHED")) {
+        TraceSpan.countApiCall();
+      }
+      event.end();
+      if (event.shouldCommit()) {
+        event.spanId = TraceSpan.currentId();
+        event.endpoint = GoogleEndpoint.fromUrl(url).name();
+        event.method = request.getMethod();
+        event.url = redactApiKey(url);
+        event.requestClass = requestClass.name();
+        event.replayed = isReplaying();
+        event.outcome = outcome;
+        if (exchange != null) {
+          event.statusCode = exchange.statusCode();
+          event.responseBytes = exchange.body().getBytes(StandardCharsets.UTF_8).length;
+        }
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Sends a request for {@link #execute}, recording the time it queued in the event.
+   *
+   * @param request The request to send.
+   * @param url The URL of the request.
+   * @param requestClass The class of the request.
+   * @param event The event tracing the call.
+   * @return The exchange.
+   * @throws IOException If an I/O error occurs or the request is shed.
+   */
+  private ApiExchange send(
+      HttpUriRequestBase request, String url, RequestClass requestClass, ApiCallEvent event)
+      throws IOException {
+    String key = requestKey(request, url);
+    if (isReplaying()) {
+      return cassette.replay(key);
+    }
+
+    GoogleEndpoint endpoint = GoogleEndpoint.fromUrl(url);
+    AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.get(endpoint.getHost());
+    long queuedAt = System.nanoTime();
+    try {
+      if (!limiter.acquire(requestClass.ordinal(), requestClass.getQueueDeadline().toNanos())) {
+        throw new LoadShedException(requestClass + " request to " + endpoint + " was shed");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while queued for " + redactApiKey(url));
+    } finally {
+      event.queueMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt);
+    }
+    long timeoutMillis = requestClass.getResponseTimeout().toMillis();
+    request.setConfig(
+        RequestConfig.custom().setResponseTimeout(Timeout.ofMilliseconds(timeoutMillis)).build());
+    long start = System.nanoTime();
+    ApiExchange exchange;
+    long latencyNanos;
+    try {
+      exchange = transmit(request, key);
+      latencyNanos = System.nanoTime() - start;
+    } catch (UnreadableResponseException e) {
+      limiter.onIgnored();
+      logger.error("Error parsing API response from URL: {}", redactApiKey(url), e);
+      throw e;
+    } catch (IOException | RuntimeException e) {
+      // A cancelled hedge says nothing about load; a timeout or reset does
+      if (request.isCancelled()) {
+        limiter.onIgnored();
+      } else {
+        limiter.onDropped();
+      }
+      throw e;
+    }
+    if (exchange.statusCode() == 429) {
+      limiter.onDropped();
+    } else {
+      limiter.onSuccess(latencyNanos);
+    }
+    latencyTrackers.get(endpoint).record(exchange.latencyMillis());
+    if (cassette != null) {
+      cassette.record(exchange);
+    }
+    return exchange;
+  }
+
+  /**
+   * Sends a request over the pooled HTTP client and reads the response. This is the only place
+   * that talks to Google, so tests override it to stand in for Google; an override must fail with
+   * an IOException once the request is cancelled.
+   *
+   * @param request The request to send, which may be cancelled while it is in flight.
+   * @param key The request key.
+   * @return The exchange holding the response status, body and observed latency.
+   * @throws IOException If an I/O error occurs or the request is cancelled.
+   */
+  protected ApiExchange transmit(HttpUriRequestBase request, String key) throws IOException {
+    long start = System.nanoTime();
     try (var response = httpClient.execute(request)) {
-      return EntityUtils.toString(response.getEntity());
+      String body = EntityUtils.toString(response.getEntity());
+      return new ApiExchange(
+          key,
+          response.getCode(),
+          body,
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     } catch (ParseException e) {
-      logger.error("Error parsing API response from URL: {}", url, e);
-      throw new IOException("Error parsing API response", e);
+      throw new UnreadableResponseException(e);
     }
   }
 
+  /**
+   * Gets the current adaptive concurrency limit of an endpoint's host. Endpoints on the same host
+   * share the limit, as they share its pooled connections.
+   *
+   * @param endpoint The endpoint.
+   * @return The number of requests that may be in flight to the endpoint's host at once.
+   */
+  public int getConcurrencyLimit(GoogleEndpoint endpoint) {
+    return concurrencyLimiters.get(endpoint.getHost()).getLimit();
+  }
+
+  /**
+   * Gets the number of requests waiting for the concurrency limit of an endpoint's host.
+   *
+   * @param endpoint The endpoint.
+   * @return The queue depth.
+   */
+  public int getQueueDepth(GoogleEndpoint endpoint) {
+    return concurrencyLimiters.get(endpoint.getHost()).getQueueDepth();
+  }
+
+  /**
+   * Gets the number of requests of one class waiting for the concurrency limit of an endpoint's
+   * host.
+   *
+   * @param endpoint The endpoint.
+   * @param requestClass The request class.
+   * @return The queue depth of the class's lane.
+   */
+  public int getQueueDepth(GoogleEndpoint endpoint, RequestClass requestClass) {
+    return concurrencyLimiters.get(endpoint.getHost()).getQueueDepth(requestClass.ordinal());
+  }
+
+  /** Thrown when a response arrived but its entity could not be read. */
+  private static class UnreadableResponseException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    UnreadableResponseException(ParseException cause) {
+      super("Error parsing API response", cause);
+    }
+  }
+
+  /** Thrown when a request is shed because it could not be sent within its queue deadline. */
+  private static class LoadShedException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    LoadShedException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * Builds the key identifying a request in cassettes and caches.
+   *
+   * @param request The request.
+   * @param url The URL of the request.
+   * @return The HTTP method and the URL without the API key.
+   */
+  private static String requestKey(HttpUriRequestBase request, String url) {
+    // Session tokens only group requests for billing and never change the response
+    return request.getMethod() + " " + removeParameter(redactApiKey(url), "sessiontoken");
+  }
+
+  /**
+   * Removes the API key parameter from a URL so it can be logged or stored safely.
+   *
+   * @param url The URL containing the API key.
+   * @return The URL without the API key parameter.
+   */
+  private static String redactApiKey(String url) {
+    return removeParameter(url, "key");
+  }
+
+  private static String removeParameter(String url, String name) {
+    String removed = url.replaceAll("([?&])" + name + "=[^&]*(&|$)", "$1");
+    while (removed.endsWith("&") || removed.endsWith("?")) {
+      removed = removed.substring(0, removed.length() - 1);
+    }
+    return removed;
+  }
+
   /**
    * Handles the API response status. Throws an exception if the status is not OK.
    *
@@ -209,12 +861,20 @@ public class GoogleApiService implements Closeable {
   }
 
   /**
-   * Closes the HTTP client.
+   * Closes the HTTP client, the response cache and the cassette, if any.
    *
    * @throws IOException If an I/O error occurs.
    */
   @Override
   public void close() throws IOException {
-    httpClient.close();
+    hedgeExecutor.shutdownNow();
+    try {
+      httpClient.close();
+    } finally {
+      cache.close();
+      if (cassette != null) {
+        cassette.close();
+      }
+    }
   }
 }
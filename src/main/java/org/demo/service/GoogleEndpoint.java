@@ -0,0 +1,48 @@
+package org.demo.service;
+
+import java.net.URI;
+
+/** The Google API endpoints called by {@link GoogleApiService}. */
+public enum GoogleEndpoint {
+  AUTOCOMPLETE("https://maps.googleapis.com/maps/api/place/autocomplete/json"),
+  GEOCODING("https://maps.googleapis.com/maps/api/geocode/json"),
+  GEOLOCATION("https://www.googleapis.com/geolocation/v1/geolocate");
+
+  private final String url;
+  private final String host;
+
+  GoogleEndpoint(String url) {
+    this.url = url;
+    this.host = URI.create(url).getHost();
+  }
+
+  public String getUrl() {
+    return url;
+  }
+
+  /**
+   * Gets the host serving the endpoint. Endpoints on the same host share one route of the
+   * connection pool.
+   *
+   * @return The host name.
+   */
+  public String getHost() {
+    return host;
+  }
+
+  /**
+   * Finds the endpoint a request URL belongs to.
+   *
+   * @param url The request URL.
+   * @return The endpoint whose base URL the request URL starts with.
+   * @throws IllegalArgumentException If the URL belongs to no known endpoint.
+   */
+  public static GoogleEndpoint fromUrl(String url) {
+    for (GoogleEndpoint endpoint : values()) {
+      if (url.startsWith(endpoint.url)) {
+        return endpoint;
+      }
+    }
+    throw new IllegalArgumentException("Unknown Google API endpoint: " + url);
+  }
+}
@@ -0,0 +1,107 @@
+package org.demo.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import org.demo.model.LocationInfo;
+import org.demo.util.PostalCodeValidator;
+
+/**
+ * What is already known about the place a user is looking for, sent along with an autocomplete
+ * query to narrow its results. Each part is optional.
+ *
+ * @param countryCode The lowercase ISO 3166-1 alpha-2 code of the country results must be in, or
+ *     null for any country.
+ * @param locationBias The area results near which are preferred, or null for none.
+ * @param sessionToken The token grouping the queries of one autocomplete session, or null for none.
+ */
+public record PlaceQueryContext(
+    String countryCode, LocationBias locationBias, String sessionToken) {
+
+  /** A context that leaves the query unchanged. */
+  public static final PlaceQueryContext NONE = new PlaceQueryContext(null, null, null);
+
+  /**
+   * A circle that results are preferred to fall in. The center is snapped to a grid of a tenth of a
+   * degree (about 11 km), which is fine next to the radius of tens of kilometers it is used with.
+   * The user's exact position is then never sent to Google or kept in cache keys, and users in the
+   * same area share cached predictions.
+   *
+   * @param latitude The latitude of the center in degrees.
+   * @param longitude The longitude of the center in degrees.
+   * @param radiusMeters The radius in meters.
+   */
+  public record LocationBias(double latitude, double longitude, int radiusMeters) {
+
+    /** The number of decimal places the center is snapped to. */
+    private static final int PRECISION = 1;
+
+    public LocationBias {
+      latitude = snap(latitude);
+      longitude = snap(longitude);
+    }
+
+    private static double snap(double degrees) {
+      return BigDecimal.valueOf(degrees).setScale(PRECISION, RoundingMode.HALF_UP).doubleValue();
+    }
+
+    /** Formats a coordinate of the center in fixed-point notation. */
+    private static String format(double degrees) {
+      return BigDecimal.valueOf(degrees).setScale(PRECISION, RoundingMode.HALF_UP).toPlainString();
+    }
+  }
+
+  /**
+   * Creates a context from the location entered so far, restricting results to its country if
+   * the country is known.
+   *
+   * @param locationInfo The location entered so far.
+   * @param locationBias The area to prefer results in, or null for none.
+   * @param sessionToken The autocomplete session token, or null for none.
+   * @return The context.
+   */
+  public static PlaceQueryContext of(
+      LocationInfo locationInfo, LocationBias locationBias, String sessionToken) {
+    String countryCode =
+        locationInfo.getCountry().flatMap(PostalCodeValidator::getIsoCode).orElse(null);
+    return new PlaceQueryContext(countryCode, locationBias, sessionToken);
+  }
+
+  /**
+   * Returns a copy of this context without the country restriction, e.g. for finding the country
+   * itself.
+   *
+   * @return The context without a country.
+   */
+  public PlaceQueryContext withoutCountry() {
+    return new PlaceQueryContext(null, locationBias, sessionToken);
+  }
+
+  /**
+   * Formats the context as Places Autocomplete query parameters.
+   *
+   * @return The parameters, each preceded by {@code &}, or an empty string.
+   */
+  String toQueryParameters() {
+    StringBuilder parameters = new StringBuilder();
+    if (countryCode != null) {
+      parameters.append("&components=country:").append(countryCode);
+    }
+    if (locationBias != null) {
+      parameters
+          .append("&locationbias=circle:")
+          .append(locationBias.radiusMeters())
+          .append('@')
+          .append(LocationBias.format(locationBias.latitude()))
+          .append(',')
+          .append(LocationBias.format(locationBias.longitude()));
+    }
+    if (sessionToken != null) {
+      parameters
+          .append("&sessiontoken=")
+          .append(URLEncoder.encode(sessionToken, StandardCharsets.UTF_8));
+    }
+    return parameters.toString();
+  }
+}
@@ -0,0 +1,94 @@
+package org.demo.service;
+
+import java.time.Duration;
+
+/**
+ * The RequestClass enum tells the GoogleApiService how urgent the requests made by the current
+ * thread are. Each class has its own queue in front of every endpoint, and a waiting request of a
+ * class is only let through once no request of a more urgent class is waiting.
+ *
+ * <p>A request that cannot get through within its class's queue deadline is shed with a
+ * GoogleApiException whose status is {@link GoogleApiService#LOAD_SHED_STATUS}. Requests are
+ * {@link #INTERACTIVE} unless the caller enters another class:
+ *
+ * <pre>{@code
+ * try (RequestClass.Scope scope = RequestClass.BULK.enter()) {
+ *   googleApiService.getGeocodingData(latitude, longitude);
+ * }
+ * }</pre>
+ */
+public enum RequestClass {
+  /** A person is waiting for the response. */
+  INTERACTIVE(Duration.ofSeconds(10), Duration.ofSeconds(10)),
+  /**
+   * Batch work that can wait for interactive traffic but should not be lost; callers retry it when
+   * it is shed.
+   */
+  BULK(Duration.ofSeconds(60), Duration.ofSeconds(30)),
+  /** Speculative work, such as type-ahead suggestions, that is dropped rather than queued. */
+  PREFETCH(Duration.ZERO, Duration.ofSeconds(3));
+
+  private static final ThreadLocal<RequestClass> CURRENT =
+      ThreadLocal.withInitial(() -> INTERACTIVE);
+
+  private final Duration queueDeadline;
+  private final Duration responseTimeout;
+
+  RequestClass(Duration queueDeadline, Duration responseTimeout) {
+    this.queueDeadline = queueDeadline;
+    this.responseTimeout = responseTimeout;
+  }
+
+  /**
+   * Gets how long a request of this class may wait for a free slot before it is shed.
+   *
+   * @return The queue deadline; zero means the request is shed instead of queued.
+   */
+  public Duration getQueueDeadline() {
+    return queueDeadline;
+  }
+
+  /**
+   * Gets how long a request of this class may wait for Google's response once sent.
+   *
+   * @return The response timeout.
+   */
+  public Duration getResponseTimeout() {
+    return responseTimeout;
+  }
+
+  /**
+   * Gets the class of requests made by the current thread.
+   *
+   * @return The current request class.
+   */
+  public static RequestClass current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Makes this the class of requests made by the current thread until the returned scope is
+   * closed.
+   *
+   * @return The scope, which restores the previous class when closed.
+   */
+  public Scope enter() {
+    RequestClass previous = CURRENT.get();
+    CURRENT.set(this);
+    return new Scope(previous);
+  }
+
+  /** A region of code whose requests belong to a request class. */
+  public static final class Scope implements AutoCloseable {
+    private final RequestClass previous;
+
+    private Scope(RequestClass previous) {
+      this.previous = previous;
+    }
+
+    @Override
+    public void close() {
+      CURRENT.set(previous);
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package org.demo.service.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The CacheNode class is a lightweight TCP cache server that lets several service instances share
+ * cached Google API responses without external infrastructure.
+ *
+ * <p>A node listens on the loopback address unless given another one, and only serves clients that
+ * know its shared secret: each connection starts with a random challenge from the node, which the
+ * client must answer with its HMAC-SHA256 under the secret before any request is read. The secret
+ * itself never crosses the network, but requests are not encrypted.
+ *
+ * <p>After that the connection carries a sequence of requests. A request is an opcode byte followed
+ * by the key length and UTF-8 bytes: {@link #GET} is answered with a found flag and, if found, the
+ * body length and UTF-8 bytes; {@link #PUT} carries the body length and bytes and is answered with
+ * a single acknowledgement byte.
+ */
+public class CacheNode implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(CacheNode.class);
+
+  static final byte GET = 'G';
+  static final byte PUT = 'P';
+  static final int MAX_BODY_LENGTH = 16 * 1024 * 1024;
+  static final int MAX_KEY_LENGTH = 1024 * 1024;
+  static final int CHALLENGE_LENGTH = 32;
+  private static final int HANDSHAKE_TIMEOUT_MILLIS = 5_000;
+  private static final String MAC_ALGORITHM = "HmacSHA256";
+
+  private final ServerSocket serverSocket;
+  private final LruResponseCache store;
+  private final byte[] secret;
+  private final SecureRandom random = new SecureRandom();
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Starts a cache node listening on the given port of the loopback address.
+   *
+   * @param port The port to listen on, or 0 to pick a free port.
+   * @param maxEntries The maximum number of responses the node holds.
+   * @param secret The secret clients must prove they know.
+   * @throws IOException If the port cannot be bound.
+   */
+  public CacheNode(int port, int maxEntries, String secret) throws IOException {
+    this(InetAddress.getLoopbackAddress(), port, maxEntries, secret);
+  }
+
+  /**
+   * Starts a cache node listening on the given address and port.
+   *
+   * @param bindAddress The local address to listen on.
+   * @param port The port to listen on, or 0 to pick a free port.
+   * @param maxEntries The maximum number of responses the node holds.
+   * @param secret The secret clients must prove they know.
+   * @throws IOException If the port cannot be bound.
+   */
+  public CacheNode(InetAddress bindAddress, int port, int maxEntries, String secret)
+      throws IOException {
+    if (secret == null || secret.isEmpty()) {
+      throw new IllegalArgumentException("A cache node needs a shared secret");
+    }
+    this.store = new LruResponseCache(maxEntries);
+    this.secret = secret.getBytes(StandardCharsets.UTF_8);
+    this.serverSocket = new ServerSocket();
+    serverSocket.bind(new InetSocketAddress(bindAddress, port));
+    executor.execute(this::acceptConnections);
+    logger.info("Cache node listening on {}", serverSocket.getLocalSocketAddress());
+  }
+
+  /**
+   * Gets the address the node is listening on.
+   *
+   * @return The local address.
+   */
+  public InetAddress getAddress() {
+    return serverSocket.getInetAddress();
+  }
+
+  /**
+   * Gets the port the node is listening on.
+   *
+   * @return The port.
+   */
+  public int getPort() {
+    return serverSocket.getLocalPort();
+  }
+
+  /**
+   * Gets the number of responses held by the node.
+   *
+   * @return The number of entries.
+   */
+  public int size() {
+    return store.size();
+  }
+
+  private void acceptConnections() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        executor.execute(() -> serve(socket));
+      } catch (IOException e) {
+        if (!serverSocket.isClosed()) {
+          logger.warn("Error accepting cache connection", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (socket;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out =
+            new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+      socket.setTcpNoDelay(true);
+      if (!authenticate(socket, in, out)) {
+        logger.warn("Rejected cache connection from {}", socket.getRemoteSocketAddress());
+        return;
+      }
+      while (true) {
+        byte op = in.readByte();
+        String key = readKey(in);
+        switch (op) {
+          case GET -> {
+            Optional<String> body = store.get(key);
+            out.writeBoolean(body.isPresent());
+            if (body.isPresent()) {
+              writeBody(out, body.get());
+            }
+          }
+          case PUT -> {
+            store.put(key, readBody(in));
+            out.writeByte(1);
+          }
+          default -> throw new IOException("Unknown cache operation: " + op);
+        }
+        out.flush();
+      }
+    } catch (EOFException e) {
+      // Client closed the connection
+    } catch (IOException e) {
+      logger.debug("Cache connection closed with error", e);
+    }
+  }
+
+  /**
+   * Challenges a new connection to prove it knows the secret, answering a correct response with a
+   * single byte.
+   *
+   * @return True if the client answered correctly, false otherwise.
+   */
+  private boolean authenticate(Socket socket, DataInputStream in, DataOutputStream out)
+      throws IOException {
+    byte[] challenge = new byte[CHALLENGE_LENGTH];
+    random.nextBytes(challenge);
+    out.write(challenge);
+    out.flush();
+    byte[] response = new byte[sign(secret, challenge).length];
+    socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+    in.readFully(response);
+    socket.setSoTimeout(0);
+    if (!MessageDigest.isEqual(response, sign(secret, challenge))) {
+      return false;
+    }
+    out.writeByte(1);
+    out.flush();
+    return true;
+  }
+
+  /**
+   * Computes the answer to a challenge.
+   *
+   * @param secret The shared secret as UTF-8 bytes.
+   * @param challenge The challenge sent by the node.
+   * @return The HMAC-SHA256 of the challenge under the secret.
+   */
+  static byte[] sign(byte[] secret, byte[] challenge) {
+    try {
+      Mac mac = Mac.getInstance(MAC_ALGORITHM);
+      mac.init(new SecretKeySpec(secret, MAC_ALGORITHM));
+      return mac.doFinal(challenge);
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+    }
+  }
+
+  static void writeKey(DataOutputStream out, byte[] key) throws IOException {
+    out.writeInt(key.length);
+    out.write(key);
+  }
+
+  static String readKey(DataInputStream in) throws IOException {
+    return readString(in, MAX_KEY_LENGTH, "key");
+  }
+
+  static void writeBody(DataOutputStream out, String body) throws IOException {
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readBody(DataInputStream in) throws IOException {
+    return readString(in, MAX_BODY_LENGTH, "body");
+  }
+
+  private static String readString(DataInputStream in, int maxLength, String what)
+      throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > maxLength) {
+      throw new IOException("Invalid cached " + what + " length: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Stops accepting connections and closes the node.
+   *
+   * @throws IOException If an I/O error occurs.
+   */
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+}
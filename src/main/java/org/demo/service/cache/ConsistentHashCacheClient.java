@@ -0,0 +1,243 @@
+package org.demo.service.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ResponseCache that spreads keys across a set of {@link CacheNode} peers with consistent
+ * hashing, so that every service instance finds a response on the same node and adding or removing
+ * a node only moves the keys next to it on the ring.
+ *
+ * <p>Cache nodes are an optimization: a node that cannot be reached is treated as a miss and skipped
+ * for a short back-off period, and the service falls back to calling Google. Keys longer than the
+ * nodes accept are not cached at all.
+ */
+public class ConsistentHashCacheClient implements ResponseCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(ConsistentHashCacheClient.class);
+
+  private static final int VIRTUAL_NODES_PER_PEER = 160;
+  private static final int CONNECTIONS_PER_PEER = 8;
+  private static final int TIMEOUT_MILLIS = 200;
+  private static final long RETRY_AFTER_MILLIS = 5_000;
+
+  private final TreeMap<Long, Peer> ring = new TreeMap<>();
+  private final List<Peer> peers = new ArrayList<>();
+
+  /**
+   * Constructs a new ConsistentHashCacheClient.
+   *
+   * @param addresses The peer cache nodes.
+   * @param secret The secret shared with the cache nodes.
+   */
+  public ConsistentHashCacheClient(List<InetSocketAddress> addresses, String secret) {
+    byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+    for (InetSocketAddress address : addresses) {
+      Peer peer = new Peer(address, secretBytes);
+      peers.add(peer);
+      for (int i = 0; i < VIRTUAL_NODES_PER_PEER; i++) {
+        ring.put(hash(address.getHostString() + ":" + address.getPort() + "#" + i), peer);
+      }
+    }
+  }
+
+  /**
+   * Parses a comma-separated list of {@code host:port} peers.
+   *
+   * @param peers The peer list, e.g. "cache-1:7070,cache-2:7070".
+   * @return The peer addresses.
+   */
+  public static List<InetSocketAddress> parsePeers(String peers) {
+    List<InetSocketAddress> addresses = new ArrayList<>();
+    for (String peer : peers.split(",")) {
+      String trimmed = peer.trim();
+      if (trimmed.isEmpty()) {
+        continue;
+      }
+      int colon = trimmed.lastIndexOf(':');
+      if (colon <= 0) {
+        throw new IllegalArgumentException("Cache peer must be host:port, got: " + trimmed);
+      }
+      addresses.add(
+          InetSocketAddress.createUnresolved(
+              trimmed.substring(0, colon), Integer.parseInt(trimmed.substring(colon + 1))));
+    }
+    return addresses;
+  }
+
+  @Override
+  public Optional<String> get(String key) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    Peer peer = peerFor(key);
+    if (peer == null || !peer.isAvailable() || keyBytes.length > CacheNode.MAX_KEY_LENGTH) {
+      return Optional.empty();
+    }
+    Connection connection = null;
+    try {
+      connection = peer.borrow();
+      connection.out.writeByte(CacheNode.GET);
+      CacheNode.writeKey(connection.out, keyBytes);
+      connection.out.flush();
+      Optional<String> body =
+          connection.in.readBoolean()
+              ? Optional.of(CacheNode.readBody(connection.in))
+              : Optional.empty();
+      peer.release(connection);
+      return body;
+    } catch (IOException e) {
+      peer.fail(connection, e);
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void put(String key, String body) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    Peer peer = peerFor(key);
+    if (peer == null || !peer.isAvailable() || keyBytes.length > CacheNode.MAX_KEY_LENGTH) {
+      return;
+    }
+    Connection connection = null;
+    try {
+      connection = peer.borrow();
+      connection.out.writeByte(CacheNode.PUT);
+      CacheNode.writeKey(connection.out, keyBytes);
+      CacheNode.writeBody(connection.out, body);
+      connection.out.flush();
+      connection.in.readByte();
+      peer.release(connection);
+    } catch (IOException e) {
+      peer.fail(connection, e);
+    }
+  }
+
+  private Peer peerFor(String key) {
+    if (ring.isEmpty()) {
+      return null;
+    }
+    SortedMap<Long, Peer> tail = ring.tailMap(hash(key));
+    return tail.isEmpty() ? ring.firstEntry().getValue() : tail.get(tail.firstKey());
+  }
+
+  /** Hashes a string to a position on the ring using the first eight bytes of its MD5 digest. */
+  private static long hash(String value) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+      long hash = 0;
+      for (int i = 0; i < 8; i++) {
+        hash = (hash << 8) | (digest[i] & 0xFF);
+      }
+      return hash;
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("MD5 is not available", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    for (Peer peer : peers) {
+      peer.close();
+    }
+  }
+
+  /** A cache node on the ring, with a small pool of open connections. */
+  private static class Peer {
+    private final InetSocketAddress address;
+    private final byte[] secret;
+    private final BlockingQueue<Connection> idle = new ArrayBlockingQueue<>(CONNECTIONS_PER_PEER);
+    private volatile long unavailableUntil;
+
+    Peer(InetSocketAddress address, byte[] secret) {
+      this.address = address;
+      this.secret = secret;
+    }
+
+    boolean isAvailable() {
+      return System.currentTimeMillis() >= unavailableUntil;
+    }
+
+    Connection borrow() throws IOException {
+      Connection connection = idle.poll();
+      return connection != null ? connection : new Connection(address, secret);
+    }
+
+    void release(Connection connection) {
+      if (!idle.offer(connection)) {
+        connection.close();
+      }
+    }
+
+    void fail(Connection connection, IOException e) {
+      if (connection != null) {
+        connection.close();
+      }
+      unavailableUntil = System.currentTimeMillis() + RETRY_AFTER_MILLIS;
+      logger.warn("Cache peer {} is unavailable: {}", address, e.getMessage());
+    }
+
+    void close() {
+      Connection connection;
+      while ((connection = idle.poll()) != null) {
+        connection.close();
+      }
+    }
+  }
+
+  /** An open, authenticated connection to a cache node. */
+  private static class Connection implements Closeable {
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+
+    Connection(InetSocketAddress address, byte[] secret) throws IOException {
+      socket = new Socket();
+      try {
+        InetSocketAddress resolved =
+            address.isUnresolved()
+                ? new InetSocketAddress(address.getHostString(), address.getPort())
+                : address;
+        socket.connect(resolved, TIMEOUT_MILLIS);
+        socket.setSoTimeout(TIMEOUT_MILLIS);
+        socket.setTcpNoDelay(true);
+        in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        byte[] challenge = new byte[CacheNode.CHALLENGE_LENGTH];
+        in.readFully(challenge);
+        out.write(CacheNode.sign(secret, challenge));
+        out.flush();
+        in.readByte();
+      } catch (IOException e) {
+        socket.close();
+        throw e;
+      }
+    }
+
+    @Override
+    public void close() {
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.debug("Error closing cache connection", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package org.demo.service.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/** An in-process ResponseCache that evicts the least recently used entry when full. */
+public class LruResponseCache implements ResponseCache {
+
+  private final Map<String, String> entries;
+
+  /**
+   * Constructs a new LruResponseCache.
+   *
+   * @param maxEntries The maximum number of cached responses.
+   */
+  public LruResponseCache(int maxEntries) {
+    this.entries =
+        new LinkedHashMap<>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > maxEntries;
+          }
+        };
+  }
+
+  @Override
+  public synchronized Optional<String> get(String key) {
+    return Optional.ofNullable(entries.get(key));
+  }
+
+  @Override
+  public synchronized void put(String key, String body) {
+    entries.put(key, body);
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return The number of entries.
+   */
+  public synchronized int size() {
+    return entries.size();
+  }
+}
@@ -0,0 +1,342 @@
+package org.demo.service.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A ResponseCache that keeps response bodies outside the Java heap, so that millions of cached
+ * responses add neither to the heap nor to garbage collection pauses.
+ *
+ * <p>The cache is split into segments by key hash, each with its own lock, direct buffer and index.
+ * A segment's buffer is used as a ring: entries holding the key and the deflated body are appended
+ * at the tail, and when a new entry does not fit, the oldest entries are evicted from the head
+ * until it does, so the cache never holds more than its capacity in bytes. The index is an
+ * open-addressing table of primitive longs, each holding a key hash and an entry offset, which the
+ * garbage collector never has to trace.
+ *
+ * <p>Every hit inflates and decodes its body again, so this cache is best placed behind a small
+ * in-process cache of the hottest responses with a {@link TieredResponseCache}. Direct memory is
+ * limited by {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size.
+ */
+public class OffHeapResponseCache implements ResponseCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(OffHeapResponseCache.class);
+
+  private static final int MIN_SEGMENTS = 16;
+  private static final long MAX_SEGMENT_BYTES = 1L << 30;
+  private static final int INITIAL_INDEX_SLOTS = 1024;
+
+  // Entry layout: entry length, key hash, key length, inflated body length, key, deflated body
+  private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+  private final Segment[] segments;
+  private final int segmentShift;
+
+  /**
+   * Constructs a new OffHeapResponseCache.
+   *
+   * @param capacityBytes The maximum number of bytes of direct memory used for entries.
+   */
+  public OffHeapResponseCache(long capacityBytes) {
+    long minSegments = Math.max(MIN_SEGMENTS, -Math.floorDiv(-capacityBytes, MAX_SEGMENT_BYTES));
+    int segmentCount = Integer.highestOneBit((int) minSegments - 1) << 1;
+    if (capacityBytes / segmentCount < HEADER_BYTES) {
+      throw new IllegalArgumentException("Off-heap cache capacity too small: " + capacityBytes);
+    }
+    this.segments = new Segment[segmentCount];
+    this.segmentShift = Integer.SIZE - Integer.numberOfTrailingZeros(segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment((int) (capacityBytes / segmentCount));
+    }
+  }
+
+  @Override
+  public Optional<String> get(String key) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(key);
+    Segment.Body body = segmentFor(hash).get(hash, keyBytes);
+    if (body == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(new String(inflate(body), StandardCharsets.UTF_8));
+    } catch (DataFormatException e) {
+      logger.warn("Discarding corrupt off-heap cache entry for {}", key, e);
+      return Optional.empty();
+    }
+  }
+
+  @Override
+  public void put(String key, String body) {
+    byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+    byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+    int hash = hash(key);
+    segmentFor(hash).put(hash, keyBytes, deflate(bodyBytes), bodyBytes.length);
+  }
+
+  /**
+   * Gets the number of cached responses.
+   *
+   * @return The number of entries that can still be found.
+   */
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  /**
+   * Gets the number of bytes of direct memory currently holding entries, including entries that
+   * have been replaced but not yet evicted.
+   *
+   * @return The used bytes.
+   */
+  public long getUsedBytes() {
+    long used = 0;
+    for (Segment segment : segments) {
+      used += segment.usedBytes();
+    }
+    return used;
+  }
+
+  private Segment segmentFor(int hash) {
+    return segments[hash >>> segmentShift];
+  }
+
+  /** Spreads the bits of a key's hash code, since both its high and low bits are used. */
+  private static int hash(String key) {
+    int h = key.hashCode() * 0x9E3779B9;
+    return h ^ (h >>> 16);
+  }
+
+  private static byte[] deflate(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+      byte[] chunk = new byte[4096];
+      while (!deflater.finished()) {
+        out.write(chunk, 0, deflater.deflate(chunk));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private static byte[] inflate(Segment.Body body) throws DataFormatException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(body.deflated());
+      byte[] bytes = new byte[body.inflatedLength()];
+      int length = 0;
+      while (length < bytes.length && !inflater.finished()) {
+        int n = inflater.inflate(bytes, length, bytes.length - length);
+        if (n == 0 && inflater.needsInput()) {
+          throw new DataFormatException("Truncated body");
+        }
+        length += n;
+      }
+      return bytes;
+    } finally {
+      inflater.end();
+    }
+  }
+
+  /** A lock, ring buffer and index for the keys whose hash falls into one segment. */
+  private static final class Segment {
+
+    /** A deflated body copied out of the ring. */
+    private record Body(byte[] deflated, int inflatedLength) {}
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private long[] slots = new long[INITIAL_INDEX_SLOTS];
+    private int indexed;
+    private int stored;
+    private long usedBytes;
+    private int head;
+    private int tail;
+
+    Segment(int capacity) {
+      this.capacity = capacity;
+      this.buffer = ByteBuffer.allocateDirect(capacity);
+    }
+
+    synchronized Body get(int hash, byte[] key) {
+      int slot = find(hash, key);
+      if (slot < 0) {
+        return null;
+      }
+      int offset = offsetOf(slots[slot]);
+      int keyLength = buffer.getInt(offset + 2 * Integer.BYTES);
+      byte[] deflated = new byte[buffer.getInt(offset) - HEADER_BYTES - keyLength];
+      buffer.get(offset + HEADER_BYTES + keyLength, deflated);
+      return new Body(deflated, buffer.getInt(offset + 3 * Integer.BYTES));
+    }
+
+    synchronized void put(int hash, byte[] key, byte[] deflated, int inflatedLength) {
+      int length = HEADER_BYTES + key.length + deflated.length;
+      if (length > capacity) {
+        return;
+      }
+      int offset = allocate(length);
+      buffer.putInt(offset, length);
+      buffer.putInt(offset + Integer.BYTES, hash);
+      buffer.putInt(offset + 2 * Integer.BYTES, key.length);
+      buffer.putInt(offset + 3 * Integer.BYTES, inflatedLength);
+      buffer.put(offset + HEADER_BYTES, key);
+      buffer.put(offset + HEADER_BYTES + key.length, deflated);
+      stored++;
+      usedBytes += length;
+
+      // Evicting to make room may have removed an earlier entry for the key, so look it up now
+      int existing = find(hash, key);
+      if (existing >= 0) {
+        // The earlier entry stays in the ring, unreachable, until it is evicted
+        slots[existing] = slot(hash, offset);
+        return;
+      }
+      insert(slot(hash, offset));
+      indexed++;
+      if (indexed * 2 > slots.length) {
+        resize();
+      }
+    }
+
+    synchronized int size() {
+      return indexed;
+    }
+
+    synchronized long usedBytes() {
+      return usedBytes;
+    }
+
+    /**
+     * Finds room for an entry at the tail of the ring, evicting the oldest entries as needed. Data
+     * runs from head to tail, wrapping to the start of the buffer at a zero length or when fewer
+     * than four bytes are left before the end.
+     */
+    private int allocate(int length) {
+      while (true) {
+        if (stored == 0) {
+          head = 0;
+          tail = 0;
+        }
+        if (stored == 0 || tail > head) {
+          if (capacity - tail >= length) {
+            break;
+          }
+          if (capacity - tail >= Integer.BYTES) {
+            buffer.putInt(tail, 0);
+          }
+          tail = 0;
+        } else if (head - tail >= length) {
+          break;
+        } else {
+          evictHead();
+        }
+      }
+      int offset = tail;
+      tail += length;
+      return offset;
+    }
+
+    private void evictHead() {
+      int length = buffer.getInt(head);
+      int slot = findOffset(buffer.getInt(head + Integer.BYTES), head);
+      if (slot >= 0) {
+        remove(slot);
+        indexed--;
+      }
+      stored--;
+      usedBytes -= length;
+      head += length;
+      if (stored > 0 && (capacity - head < Integer.BYTES || buffer.getInt(head) == 0)) {
+        head = 0;
+      }
+    }
+
+    private int find(int hash, byte[] key) {
+      int mask = slots.length - 1;
+      for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+        if ((int) (slots[i] >>> 32) == hash && keyEquals(offsetOf(slots[i]), key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private int findOffset(int hash, int offset) {
+      long wanted = slot(hash, offset);
+      int mask = slots.length - 1;
+      for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+        if (slots[i] == wanted) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    private boolean keyEquals(int offset, byte[] key) {
+      if (buffer.getInt(offset + 2 * Integer.BYTES) != key.length) {
+        return false;
+      }
+      return buffer.slice(offset + HEADER_BYTES, key.length).mismatch(ByteBuffer.wrap(key)) < 0;
+    }
+
+    private void insert(long slot) {
+      int mask = slots.length - 1;
+      int i = (int) (slot >>> 32) & mask;
+      while (slots[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      slots[i] = slot;
+    }
+
+    /** Removes a slot, moving later slots of its probe run back so lookups still reach them. */
+    private void remove(int slot) {
+      int mask = slots.length - 1;
+      int gap = slot;
+      slots[gap] = 0;
+      for (int i = (gap + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+        int home = (int) (slots[i] >>> 32) & mask;
+        boolean reachable = gap <= i ? gap < home && home <= i : gap < home || home <= i;
+        if (!reachable) {
+          slots[gap] = slots[i];
+          slots[i] = 0;
+          gap = i;
+        }
+      }
+    }
+
+    private void resize() {
+      long[] old = slots;
+      slots = new long[old.length * 2];
+      for (long slot : old) {
+        if (slot != 0) {
+          insert(slot);
+        }
+      }
+    }
+
+    private static long slot(int hash, int offset) {
+      // Offsets are stored plus one so that no slot in use is zero
+      return ((long) hash << 32) | (offset + 1L);
+    }
+
+    private static int offsetOf(long slot) {
+      return (int) slot - 1;
+    }
+  }
+}
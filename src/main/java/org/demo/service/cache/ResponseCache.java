@@ -0,0 +1,31 @@
+package org.demo.service.cache;
+
+import java.io.Closeable;
+import java.util.Optional;
+
+/**
+ * A cache of successful Google API response bodies, keyed by request (HTTP method and URL without
+ * the API key).
+ */
+public interface ResponseCache extends Closeable {
+
+  /**
+   * Gets the cached response body for a request.
+   *
+   * @param key The request key.
+   * @return The cached response body, or empty on a miss.
+   */
+  Optional<String> get(String key);
+
+  /**
+   * Caches the response body for a request.
+   *
+   * @param key The request key.
+   * @param body The response body.
+   */
+  void put(String key, String body);
+
+  /** Releases any resources held by the cache. */
+  @Override
+  default void close() {}
+}
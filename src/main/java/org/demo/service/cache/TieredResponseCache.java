@@ -0,0 +1,49 @@
+package org.demo.service.cache;
+
+import java.util.Optional;
+
+/**
+ * A ResponseCache that checks a fast first-level cache before a slower second-level cache. Hits in
+ * the second level are copied into the first, and new entries are written to both.
+ */
+public class TieredResponseCache implements ResponseCache {
+
+  private final ResponseCache firstLevel;
+  private final ResponseCache secondLevel;
+
+  /**
+   * Constructs a new TieredResponseCache.
+   *
+   * @param firstLevel The cache checked first.
+   * @param secondLevel The cache checked on a first-level miss.
+   */
+  public TieredResponseCache(ResponseCache firstLevel, ResponseCache secondLevel) {
+    this.firstLevel = firstLevel;
+    this.secondLevel = secondLevel;
+  }
+
+  @Override
+  public Optional<String> get(String key) {
+    Optional<String> body = firstLevel.get(key);
+    if (body.isEmpty()) {
+      body = secondLevel.get(key);
+      body.ifPresent(b -> firstLevel.put(key, b));
+    }
+    return body;
+  }
+
+  @Override
+  public void put(String key, String body) {
+    firstLevel.put(key, body);
+    secondLevel.put(key, body);
+  }
+
+  @Override
+  public void close() {
+    try {
+      firstLevel.close();
+    } finally {
+      secondLevel.close();
+    }
+  }
+}
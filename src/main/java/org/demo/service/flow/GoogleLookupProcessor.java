@@ -0,0 +1,194 @@
+package org.demo.service.flow;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.demo.service.GoogleApiService;
+import org.demo.service.RequestClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The GoogleLookupProcessor class resolves a stream of {@link LookupRequest}s with a shared
+ * {@link GoogleApiService} and publishes a {@link LookupResult} for each as it completes. Results
+ * may be published in a different order than the requests arrived.
+ *
+ * <p>Demand is driven by the subscribers: at most {@code maxInFlight} lookups run at once, and a
+ * new request is taken from upstream only after a finished result has been accepted into the
+ * subscribers' buffers, which hold at most {@code maxInFlight} results each. A slow subscriber
+ * therefore slows the upstream publisher down instead of letting work queue up, and memory stays
+ * bounded whatever the input rate. {@code maxInFlight} should not exceed the service's connection
+ * pool size, so lookups never wait for a connection.
+ *
+ * <p>Nothing is requested from upstream until both the upstream subscription and at least one
+ * subscriber are in place. Lookups are {@link RequestClass#BULK} requests unless another class is
+ * given, so a stream never holds up interactive users of the same service.
+ */
+public class GoogleLookupProcessor
+    implements Flow.Processor<LookupRequest, LookupResult>, AutoCloseable {
+
+  private static final Logger logger = LoggerFactory.getLogger(GoogleLookupProcessor.class);
+
+  private final GoogleApiService googleApiService;
+  private final int maxInFlight;
+  private final Executor executor;
+  private final RequestClass requestClass;
+  private final SubmissionPublisher<LookupResult> publisher;
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private Flow.Subscription upstream;
+  private boolean started;
+  private boolean upstreamDone;
+  private Throwable upstreamError;
+
+  /**
+   * Constructs a new GoogleLookupProcessor that makes bulk requests.
+   *
+   * @param googleApiService The service used to resolve lookups.
+   * @param maxInFlight The maximum number of lookups running at once.
+   * @param executor The executor lookups and deliveries run on.
+   */
+  public GoogleLookupProcessor(
+      GoogleApiService googleApiService, int maxInFlight, Executor executor) {
+    this(googleApiService, maxInFlight, executor, RequestClass.BULK);
+  }
+
+  /**
+   * Constructs a new GoogleLookupProcessor.
+   *
+   * @param googleApiService The service used to resolve lookups.
+   * @param maxInFlight The maximum number of lookups running at once.
+   * @param executor The executor lookups and deliveries run on.
+   * @param requestClass The class of the requests made for lookups.
+   */
+  public GoogleLookupProcessor(
+      GoogleApiService googleApiService,
+      int maxInFlight,
+      Executor executor,
+      RequestClass requestClass) {
+    this.googleApiService = googleApiService;
+    this.maxInFlight = maxInFlight;
+    this.executor = executor;
+    this.requestClass = requestClass;
+    this.publisher = new SubmissionPublisher<>(executor, maxInFlight);
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super LookupResult> subscriber) {
+    publisher.subscribe(subscriber);
+    startIfReady();
+  }
+
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    synchronized (this) {
+      if (upstream != null) {
+        subscription.cancel();
+        return;
+      }
+      upstream = subscription;
+    }
+    startIfReady();
+  }
+
+  private void startIfReady() {
+    synchronized (this) {
+      if (started || upstream == null || !publisher.hasSubscribers()) {
+        return;
+      }
+      started = true;
+    }
+    upstream.request(maxInFlight);
+  }
+
+  @Override
+  public void onNext(LookupRequest request) {
+    inFlight.incrementAndGet();
+    executor.execute(
+        () -> {
+          try {
+            // Blocks while a subscriber's buffer is full, holding back further upstream demand
+            publisher.submit(lookup(request));
+          } catch (IllegalStateException e) {
+            logger.debug("Dropping result for {} after the processor was closed", request.id());
+          } finally {
+            inFlight.decrementAndGet();
+            if (!closeIfDone()) {
+              upstream.request(1);
+            }
+          }
+        });
+  }
+
+  @SuppressWarnings("try")
+  private LookupResult lookup(LookupRequest request) {
+    try (RequestClass.Scope scope = requestClass.enter()) {
+      return switch (request.kind()) {
+        case PREDICTIONS ->
+            new LookupResult(
+                request,
+                googleApiService.getPredictions(request.input(), request.type()),
+                null,
+                null);
+        case GEOCODE ->
+            new LookupResult(
+                request,
+                null,
+                googleApiService.getGeocodingData(request.latitude(), request.longitude()),
+                null);
+      };
+    } catch (Exception e) {
+      logger.debug("Lookup {} failed", request.id(), e);
+      return new LookupResult(request, null, null, e);
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    synchronized (this) {
+      upstreamError = throwable;
+      upstreamDone = true;
+    }
+    closeIfDone();
+  }
+
+  @Override
+  public void onComplete() {
+    synchronized (this) {
+      upstreamDone = true;
+    }
+    closeIfDone();
+  }
+
+  /**
+   * Completes the subscribers once upstream is done and every in-flight lookup is published.
+   *
+   * @return True if the processor is closed, false otherwise.
+   */
+  private synchronized boolean closeIfDone() {
+    if (publisher.isClosed()) {
+      return true;
+    }
+    if (!upstreamDone || inFlight.get() > 0) {
+      return false;
+    }
+    if (upstreamError != null) {
+      publisher.closeExceptionally(upstreamError);
+    } else {
+      publisher.close();
+    }
+    return true;
+  }
+
+  /** Cancels the upstream subscription and completes the subscribers. */
+  @Override
+  public void close() {
+    synchronized (this) {
+      if (upstream != null) {
+        upstream.cancel();
+      }
+    }
+    publisher.close();
+  }
+}
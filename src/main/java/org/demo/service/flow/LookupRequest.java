@@ -0,0 +1,45 @@
+package org.demo.service.flow;
+
+/**
+ * A lookup to be resolved by a {@link GoogleLookupProcessor}.
+ *
+ * @param id An identifier chosen by the caller to correlate the result with the request.
+ * @param kind The kind of lookup.
+ * @param input The autocomplete input, for prediction lookups.
+ * @param type The autocomplete type parameter, for prediction lookups.
+ * @param latitude The latitude, for geocode lookups.
+ * @param longitude The longitude, for geocode lookups.
+ */
+public record LookupRequest(
+    String id, Kind kind, String input, String type, double latitude, double longitude) {
+
+  /** The kind of a lookup. */
+  public enum Kind {
+    PREDICTIONS,
+    GEOCODE
+  }
+
+  /**
+   * Creates a Places Autocomplete lookup.
+   *
+   * @param id The caller's identifier for the request.
+   * @param input The autocomplete input.
+   * @param type The autocomplete type parameter.
+   * @return The lookup request.
+   */
+  public static LookupRequest predictions(String id, String input, String type) {
+    return new LookupRequest(id, Kind.PREDICTIONS, input, type, 0, 0);
+  }
+
+  /**
+   * Creates a reverse Geocoding lookup.
+   *
+   * @param id The caller's identifier for the request.
+   * @param latitude The latitude.
+   * @param longitude The longitude.
+   * @return The lookup request.
+   */
+  public static LookupRequest geocode(String id, double latitude, double longitude) {
+    return new LookupRequest(id, Kind.GEOCODE, null, null, latitude, longitude);
+  }
+}
@@ -0,0 +1,20 @@
+package org.demo.service.flow;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The outcome of a {@link LookupRequest}.
+ *
+ * @param request The request this result answers.
+ * @param predictions The predictions, for a successful prediction lookup.
+ * @param geocodingData The geocoding response, for a successful geocode lookup.
+ * @param error The failure, or null if the lookup succeeded.
+ */
+public record LookupResult(
+    LookupRequest request, JSONArray predictions, JSONObject geocodingData, Throwable error) {
+
+  public boolean isSuccess() {
+    return error == null;
+  }
+}
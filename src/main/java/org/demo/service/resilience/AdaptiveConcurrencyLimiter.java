@@ -0,0 +1,304 @@
+package org.demo.service.resilience;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The AdaptiveConcurrencyLimiter class limits the number of requests in flight to an endpoint and
+ * adjusts the limit from the latencies it observes, so that callers settle near the point where
+ * more concurrency stops adding throughput.
+ *
+ * <p>The limit follows a gradient: each completed request compares the baseline latency, the
+ * lowest recently seen, with the latency just observed. While they are close the limit grows by
+ * about its square root; as latency inflates the ratio drops below one and the limit shrinks in
+ * proportion. A request that times out or is throttled halves the limit. The limit only grows
+ * while at least half of it is actually in use, so an idle endpoint does not drift upwards.
+ *
+ * <p>Callers that find the limit reached wait in {@link #acquire()} and are counted in the queue
+ * depth. Every acquired permit must be released with {@link #onSuccess(long)}, {@link
+ * #onDropped()} or {@link #onIgnored()}.
+ *
+ * <p>A limiter may have several priority lanes, lane 0 being the most urgent. Each lane is a FIFO
+ * queue, and a waiter is only let through once every more urgent lane is empty. When there is more
+ * than one lane, the last permit below the limit is kept for lane 0 so an urgent request rarely has
+ * to wait for a less urgent one to finish.
+ *
+ * <p>Callers wait on a {@link ReentrantLock} condition rather than a monitor, so a virtual thread
+ * queued here unmounts from its carrier instead of pinning it.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+  private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+  private static final double LATENCY_TOLERANCE = 1.5;
+  private static final double MIN_GRADIENT = 0.5;
+  private static final double SMOOTHING = 0.2;
+  private static final double BACKOFF_RATIO = 0.5;
+  private static final int BASELINE_WINDOW = 100;
+
+  private final String name;
+  private final int minLimit;
+  private final int maxLimit;
+  private final List<Deque<Object>> lanes;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+
+  private double limit;
+  private int inFlight;
+  private int queueDepth;
+  private long baselineNanos = Long.MAX_VALUE;
+  private long windowMinNanos = Long.MAX_VALUE;
+  private int windowSamples;
+
+  /**
+   * Constructs a new AdaptiveConcurrencyLimiter with a single lane.
+   *
+   * @param name The name used in log messages, e.g. the endpoint.
+   * @param initialLimit The limit before any latency has been observed.
+   * @param minLimit The lowest the limit may fall.
+   * @param maxLimit The highest the limit may grow.
+   */
+  public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+    this(name, initialLimit, minLimit, maxLimit, 1);
+  }
+
+  /**
+   * Constructs a new AdaptiveConcurrencyLimiter with priority lanes.
+   *
+   * @param name The name used in log messages, e.g. the endpoint.
+   * @param initialLimit The limit before any latency has been observed.
+   * @param minLimit The lowest the limit may fall.
+   * @param maxLimit The highest the limit may grow.
+   * @param laneCount The number of priority lanes.
+   */
+  public AdaptiveConcurrencyLimiter(
+      String name, int initialLimit, int minLimit, int maxLimit, int laneCount) {
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException(
+          "Invalid concurrency limits: min " + minLimit + ", max " + maxLimit);
+    }
+    this.name = name;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    this.lanes = new ArrayList<>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      lanes.add(new ArrayDeque<>());
+    }
+  }
+
+  /**
+   * Waits in lane 0 until a request may be sent.
+   *
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public void acquire() throws InterruptedException {
+    acquire(0, Long.MAX_VALUE);
+  }
+
+  /**
+   * Waits in a lane until a request may be sent or the timeout expires.
+   *
+   * @param lane The priority lane, 0 being the most urgent.
+   * @param timeoutNanos How long to wait, 0 to not wait at all, or Long.MAX_VALUE to wait forever.
+   * @return True if a permit was acquired, false if the timeout expired first.
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public boolean acquire(int lane, long timeoutNanos) throws InterruptedException {
+    lock.lockInterruptibly();
+    try {
+      if (lanes.get(lane).isEmpty() && hasPermitFor(lane)) {
+        inFlight++;
+        return true;
+      }
+      if (timeoutNanos <= 0) {
+        return false;
+      }
+      return awaitPermit(lane, timeoutNanos);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean awaitPermit(int lane, long timeoutNanos) throws InterruptedException {
+    Object waiter = new Object();
+    lanes.get(lane).addLast(waiter);
+    queueDepth++;
+    long remaining = timeoutNanos;
+    try {
+      while (lanes.get(lane).peekFirst() != waiter || !hasPermitFor(lane)) {
+        if (timeoutNanos == Long.MAX_VALUE) {
+          changed.await();
+        } else {
+          if (remaining <= 0) {
+            return false;
+          }
+          remaining = changed.awaitNanos(remaining);
+        }
+      }
+      inFlight++;
+      return true;
+    } finally {
+      lanes.get(lane).remove(waiter);
+      queueDepth--;
+      // The next waiter in this lane, or in a less urgent one, may now be at the front
+      changed.signalAll();
+    }
+  }
+
+  private boolean hasPermitFor(int lane) {
+    for (int i = 0; i < lane; i++) {
+      if (!lanes.get(i).isEmpty()) {
+        return false;
+      }
+    }
+    int available = lane == 0 ? getLimit() : Math.max(1, getLimit() - 1);
+    return inFlight < available;
+  }
+
+  /**
+   * Releases a permit for a request that completed normally and adjusts the limit.
+   *
+   * @param latencyNanos The observed round-trip latency in nanoseconds.
+   */
+  public void onSuccess(long latencyNanos) {
+    lock.lock();
+    try {
+      int inFlightBefore = inFlight;
+      release();
+      long latency = Math.max(1, latencyNanos);
+      updateBaseline(latency);
+
+      double gradient =
+          Math.max(MIN_GRADIENT, Math.min(1.0, LATENCY_TOLERANCE * baselineNanos / latency));
+      if (gradient == 1.0 && inFlightBefore < limit / 2) {
+        // The endpoint is not the bottleneck; there is nothing to learn about a higher limit
+        return;
+      }
+      double target = limit * gradient + (gradient == 1.0 ? Math.sqrt(limit) : 0);
+      setLimit(limit * (1 - SMOOTHING) + target * SMOOTHING);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Releases a permit for a request that timed out or was throttled, and backs off. */
+  public void onDropped() {
+    lock.lock();
+    try {
+      release();
+      setLimit(limit * BACKOFF_RATIO);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Releases a permit for a request whose latency says nothing about the endpoint's load. */
+  public void onIgnored() {
+    lock.lock();
+    try {
+      release();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the current concurrency limit.
+   *
+   * @return The number of requests that may be in flight at once.
+   */
+  public int getLimit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of requests currently in flight.
+   *
+   * @return The number of acquired permits.
+   */
+  public int getInFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of callers waiting for a permit.
+   *
+   * @return The queue depth across all lanes.
+   */
+  public int getQueueDepth() {
+    lock.lock();
+    try {
+      return queueDepth;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the number of callers waiting for a permit in one lane.
+   *
+   * @param lane The priority lane.
+   * @return The queue depth of the lane.
+   */
+  public int getQueueDepth(int lane) {
+    lock.lock();
+    try {
+      return lanes.get(lane).size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void release() {
+    inFlight--;
+    changed.signalAll();
+  }
+
+  /**
+   * Tracks the baseline as the lowest latency of the current and previous windows of samples, so it
+   * follows a lasting change in network distance instead of sticking to an old minimum forever.
+   */
+  private void updateBaseline(long latencyNanos) {
+    windowMinNanos = Math.min(windowMinNanos, latencyNanos);
+    baselineNanos = Math.min(baselineNanos, latencyNanos);
+    if (++windowSamples == BASELINE_WINDOW) {
+      baselineNanos = windowMinNanos;
+      windowMinNanos = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+  }
+
+  private void setLimit(double newLimit) {
+    int before = getLimit();
+    limit = Math.max(minLimit, Math.min(newLimit, maxLimit));
+    int after = getLimit();
+    if (after != before) {
+      logger.debug(
+          "Concurrency limit for {} is now {} (baseline {} ms)",
+          name,
+          after,
+          TimeUnit.NANOSECONDS.toMillis(baselineNanos));
+      if (after > before) {
+        changed.signalAll();
+      }
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package org.demo.service.resilience;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The CircuitBreaker class stops calls to an endpoint whose recent error rate is too high.
+ *
+ * <p>While closed, the outcomes of the most recent calls are kept in a sliding window. Once the
+ * window holds enough calls and the failure rate reaches the threshold, the breaker opens and
+ * rejects calls for the open duration. After that a single trial call is let through (half-open): if
+ * it succeeds the breaker closes again, otherwise it reopens.
+ */
+public class CircuitBreaker {
+
+  private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+  /** The state of a circuit breaker. */
+  public enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final String name;
+  private final boolean[] outcomes;
+  private final double failureRateThreshold;
+  private final int minimumCalls;
+  private final long openNanos;
+  private final LongSupplier clock;
+
+  private State state = State.CLOSED;
+  private int next;
+  private int calls;
+  private int failures;
+  private long openedAt;
+  private boolean trialInFlight;
+
+  /**
+   * Constructs a new CircuitBreaker.
+   *
+   * @param name The name used in log messages, e.g. the endpoint.
+   * @param windowSize The number of most recent calls considered.
+   * @param failureRateThreshold The failure rate, between 0 and 1, at which the breaker opens.
+   * @param minimumCalls The number of calls needed in the window before the breaker can open.
+   * @param openDuration How long the breaker rejects calls before allowing a trial call.
+   * @param clock The source of the current time in nanoseconds.
+   */
+  public CircuitBreaker(
+      String name,
+      int windowSize,
+      double failureRateThreshold,
+      int minimumCalls,
+      Duration openDuration,
+      LongSupplier clock) {
+    this.name = name;
+    this.outcomes = new boolean[windowSize];
+    this.failureRateThreshold = failureRateThreshold;
+    this.minimumCalls = minimumCalls;
+    this.openNanos = openDuration.toNanos();
+    this.clock = clock;
+  }
+
+  /**
+   * Checks whether a call may proceed. Every permitted call must be followed by {@link
+   * #onSuccess()} or {@link #onFailure()}.
+   *
+   * @return True if the call may proceed, false if it should fail fast.
+   */
+  public synchronized boolean tryAcquire() {
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        if (clock.getAsLong() - openedAt < openNanos) {
+          return false;
+        }
+        state = State.HALF_OPEN;
+        logger.info("Circuit breaker for {} is half-open; allowing a trial call", name);
+        trialInFlight = true;
+        return true;
+      default:
+        if (trialInFlight) {
+          return false;
+        }
+        trialInFlight = true;
+        return true;
+    }
+  }
+
+  /** Records a successful call. */
+  public synchronized void onSuccess() {
+    if (state == State.HALF_OPEN) {
+      logger.info("Circuit breaker for {} is closed again", name);
+      reset();
+      state = State.CLOSED;
+      return;
+    }
+    recordOutcome(false);
+  }
+
+  /** Records a failed call. */
+  public synchronized void onFailure() {
+    if (state == State.HALF_OPEN) {
+      logger.warn("Circuit breaker for {} is open again after its trial call failed", name);
+      open();
+      return;
+    }
+    recordOutcome(true);
+    if (state == State.CLOSED
+        && calls >= minimumCalls
+        && failures >= failureRateThreshold * calls) {
+      logger.warn(
+          "Circuit breaker for {} is open after {} failures in {} calls", name, failures, calls);
+      open();
+    }
+  }
+
+  /**
+   * Releases a permitted call that never reached the endpoint, without recording an outcome. A
+   * half-open breaker lets another trial call through.
+   */
+  public synchronized void onIgnored() {
+    if (state == State.HALF_OPEN) {
+      trialInFlight = false;
+    }
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  private void recordOutcome(boolean failed) {
+    if (calls == outcomes.length) {
+      if (outcomes[next]) {
+        failures--;
+      }
+    } else {
+      calls++;
+    }
+    outcomes[next] = failed;
+    if (failed) {
+      failures++;
+    }
+    next = (next + 1) % outcomes.length;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openedAt = clock.getAsLong();
+    trialInFlight = false;
+    reset();
+  }
+
+  private void reset() {
+    next = 0;
+    calls = 0;
+    failures = 0;
+    trialInFlight = false;
+  }
+}
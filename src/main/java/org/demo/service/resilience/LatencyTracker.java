@@ -0,0 +1,59 @@
+package org.demo.service.resilience;
+
+import java.util.Arrays;
+
+/**
+ * The LatencyTracker class keeps the most recent round-trip latencies of an endpoint and estimates
+ * their percentiles.
+ */
+public class LatencyTracker {
+
+  private final long[] samples;
+  private int next;
+  private int count;
+
+  /**
+   * Constructs a new LatencyTracker.
+   *
+   * @param windowSize The number of most recent samples to keep.
+   */
+  public LatencyTracker(int windowSize) {
+    this.samples = new long[windowSize];
+  }
+
+  /**
+   * Records a latency sample.
+   *
+   * @param latencyMillis The observed latency in milliseconds.
+   */
+  public synchronized void record(long latencyMillis) {
+    samples[next] = latencyMillis;
+    next = (next + 1) % samples.length;
+    count = Math.min(count + 1, samples.length);
+  }
+
+  /**
+   * Gets the number of samples currently kept.
+   *
+   * @return The number of samples.
+   */
+  public synchronized int getSampleCount() {
+    return count;
+  }
+
+  /**
+   * Estimates a percentile of the kept samples.
+   *
+   * @param percentile The percentile, between 0 and 1.
+   * @return The latency at that percentile in milliseconds, or 0 if there are no samples.
+   */
+  public synchronized long percentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+    long[] sorted = Arrays.copyOf(samples, count);
+    Arrays.sort(sorted);
+    int index = (int) Math.ceil(percentile * count) - 1;
+    return sorted[Math.max(0, Math.min(index, count - 1))];
+  }
+}
@@ -0,0 +1,793 @@
+package org.demo.session;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.demo.exception.GoogleApiException;
+import org.demo.model.LocationInfo;
+import org.demo.service.GoogleApiService;
+import org.demo.service.PlaceQueryContext;
+import org.demo.trace.TraceSpan;
+import org.demo.util.GeocodingParser;
+import org.demo.util.GoogleMapsUtil;
+import org.demo.util.InputValidator;
+import org.demo.util.PlaceNameIndex;
+import org.demo.util.PostalCodeIndex;
+import org.demo.util.PostalCodeValidator;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The LocationSession class is the address-entry menu of one user, as a state machine that is fed
+ * one line of input at a time. It owns no input or output stream: each line returns a {@link Reply}
+ * with the text to show and the prompt for the next line, so a session can be driven from a
+ * terminal, a socket or HTTP requests, and many sessions can share one {@link GoogleApiService}.
+ *
+ * <p>Between lines a session holds only its {@link LocationInfo}, its state and the predictions the
+ * user is choosing from, so an idle session costs a few kilobytes. Lines for one session are
+ * handled one at a time under a {@link ReentrantLock}, which a virtual thread waiting on Google can
+ * hold without pinning its carrier thread.
+ */
+public class LocationSession {
+
+  private static final Logger logger = LoggerFactory.getLogger(LocationSession.class);
+
+  private static final int USE_CURRENT_LOCATION = 6;
+  private static final int CLEAR_CHOICE = 7;
+  private static final int PINPOINT_CHOICE = 8;
+  private static final int EXIT_CHOICE = 9;
+
+  private static final double MAX_POSTAL_CODE_DISTANCE_KM = 25;
+  private static final int LOCATION_BIAS_RADIUS_METERS = 50_000;
+
+  private static final String MENU_PROMPT = "Enter your choice: ";
+  private static final String SELECTION_PROMPT = "Enter index or continue searching: ";
+  private static final String CONFIRMATION_PROMPT = "Is this an index value? (y/n)";
+
+  /**
+   * The text to show after a line of input, and the prompt for the next line.
+   *
+   * @param output The text to show, possibly empty.
+   * @param prompt The prompt for the next line, or null if the session has ended.
+   */
+  public record Reply(String output, String prompt) {
+
+    /**
+     * Checks whether the session has ended.
+     *
+     * @return True if no further input is expected, false otherwise.
+     */
+    public boolean isClosed() {
+      return prompt == null;
+    }
+  }
+
+  /** What the session expects the next line to be. */
+  private enum State {
+    MENU,
+    LOCATION_INPUT,
+    SELECTION,
+    INDEX_CONFIRMATION,
+    CLOSED
+  }
+
+  private final GoogleApiService googleApiService;
+  private final Map<String, PlaceNameIndex> placeNameIndexes;
+  private final PostalCodeIndex postalCodeIndex;
+  private final boolean openMapsInBrowser;
+  private final LocationInfo locationInfo = new LocationInfo();
+  private final StringBuilder output = new StringBuilder();
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private State state = State.MENU;
+  private String key;
+  private String type;
+  private JSONArray predictions;
+  private String pendingIndex;
+  private String sessionToken = UUID.randomUUID().toString();
+  private PlaceQueryContext.LocationBias locationBias;
+
+  /**
+   * Constructs a new LocationSession that uses the postal code index configured in the
+   * environment, if any.
+   *
+   * @param googleApiService The service used for Google API calls, which may be shared.
+   * @param placeNameIndexes The place name indexes by location type, as created by {@link
+   *     #newPlaceNameIndexes()}, which may be shared.
+   * @param openMapsInBrowser Whether "Pinpoint on Google Maps" opens a local browser, rather than
+   *     showing the URL.
+   */
+  public LocationSession(
+      GoogleApiService googleApiService,
+      Map<String, PlaceNameIndex> placeNameIndexes,
+      boolean openMapsInBrowser) {
+    this(
+        googleApiService,
+        placeNameIndexes,
+        PostalCodeIndex.fromEnvironment().orElse(null),
+        openMapsInBrowser);
+  }
+
+  /**
+   * Constructs a new LocationSession.
+   *
+   * @param googleApiService The service used for Google API calls, which may be shared.
+   * @param placeNameIndexes The place name indexes by location type, as created by {@link
+   *     #newPlaceNameIndexes()}, which may be shared.
+   * @param postalCodeIndex The index used to resolve the current location, or null to ask Google.
+   * @param openMapsInBrowser Whether "Pinpoint on Google Maps" opens a local browser, rather than
+   *     showing the URL.
+   */
+  public LocationSession(
+      GoogleApiService googleApiService,
+      Map<String, PlaceNameIndex> placeNameIndexes,
+      PostalCodeIndex postalCodeIndex,
+      boolean openMapsInBrowser) {
+    this.googleApiService = googleApiService;
+    this.placeNameIndexes = placeNameIndexes;
+    this.postalCodeIndex = postalCodeIndex;
+    this.openMapsInBrowser = openMapsInBrowser;
+  }
+
+  /**
+   * Creates the place name indexes a set of sessions can share, with countries preloaded.
+   *
+   * @return A thread-safe map of place name indexes by location type.
+   */
+  public static Map<String, PlaceNameIndex> newPlaceNameIndexes() {
+    return newPlaceNameIndexes(PlaceNameIndex.DEFAULT_MAX_LEARNED_NAMES);
+  }
+
+  /**
+   * Creates the place name indexes a set of sessions can share, with countries preloaded. There is
+   * one index for each location type checked locally, so however many sessions share them, they
+   * hold at most the preloaded countries plus the given number of learned names per type.
+   *
+   * @param maxLearnedNames The number of learned names each index keeps.
+   * @return A thread-safe map of place name indexes by location type.
+   */
+  public static Map<String, PlaceNameIndex> newPlaceNameIndexes(int maxLearnedNames) {
+    return Map.of(
+        "country",
+        PlaceNameIndex.fromResource("/places/countries.txt", maxLearnedNames),
+        "administrative_area_level_1",
+        new PlaceNameIndex(maxLearnedNames),
+        "locality",
+        new PlaceNameIndex(maxLearnedNames));
+  }
+
+  /**
+   * Starts the session by showing the menu.
+   *
+   * @return The menu and the prompt for a choice.
+   */
+  public Reply start() {
+    lock.lock();
+    try {
+      displayMenu();
+      return reply(MENU_PROMPT);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Handles a line of input.
+   *
+   * @param line The line entered by the user.
+   * @return The text to show and the prompt for the next line.
+   */
+  public Reply handle(String line) {
+    return handle(line, null);
+  }
+
+  /**
+   * Handles a line of input for which predictions may already have been fetched, e.g. by type-ahead
+   * while the line was typed.
+   *
+   * @param line The line entered by the user.
+   * @param prefetched Predictions for the line when it is a location, or null to fetch them.
+   * @return The text to show and the prompt for the next line.
+   */
+  @SuppressWarnings("try")
+  public Reply handle(String line, JSONArray prefetched) {
+    lock.lock();
+    try {
+      String input = line.trim();
+      String action = state == State.MENU ? "Menu choice " + input : "Enter " + key;
+      try (TraceSpan span = TraceSpan.start(action)) {
+        switch (state) {
+          case MENU -> handleMenuChoice(input);
+          case LOCATION_INPUT -> handleLocationInput(input, prefetched);
+          case SELECTION -> handleSelection(input);
+          case INDEX_CONFIRMATION -> handleIndexConfirmation(input);
+          case CLOSED -> {}
+        }
+      } catch (Exception e) {
+        logger.error("Error processing choice", e);
+        say("An error occurred while processing your choice: " + e.getMessage());
+        showMenu();
+      }
+      return reply(promptFor(state));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the location type the session is waiting for, so the caller can offer type-ahead.
+   *
+   * @return The Google API location type, or empty if the next line is not a location.
+   */
+  public Optional<String> getPendingLocationType() {
+    lock.lock();
+    try {
+      return state == State.LOCATION_INPUT ? Optional.of(type) : Optional.empty();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the context to send with predictions for the location the session is waiting for, so
+   * type-ahead suggestions are narrowed the same way.
+   *
+   * @return The query context, or empty if the next line is not a location.
+   */
+  public Optional<PlaceQueryContext> getPendingQueryContext() {
+    lock.lock();
+    try {
+      return getPendingLocationType().map(this::queryContextFor);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks whether the user has exited.
+   *
+   * @return True if the session has ended, false otherwise.
+   */
+  public boolean isClosed() {
+    lock.lock();
+    try {
+      return state == State.CLOSED;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gets the location information entered so far.
+   *
+   * @return The location information.
+   */
+  public LocationInfo getLocationInfo() {
+    lock.lock();
+    try {
+      return locationInfo;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Processes the user's menu choice.
+   *
+   * @param input The user's choice from the menu.
+   */
+  private void handleMenuChoice(String input) {
+    int choice;
+    try {
+      choice = Integer.parseInt(input);
+    } catch (NumberFormatException e) {
+      say("Invalid input. Please enter a number.");
+      return;
+    }
+    switch (choice) {
+      case 1 -> awaitLocation("country", "country");
+      case 2 -> awaitLocation("state", "administrative_area_level_1");
+      case 3 -> awaitLocation("city", "locality");
+      case 4 -> awaitLocation("address", "address");
+      case 5 -> awaitLocation("pinCode", "postal_code");
+      case USE_CURRENT_LOCATION -> {
+        useCurrentLocation();
+        showMenu();
+      }
+      case CLEAR_CHOICE -> {
+        clearLocationInfo();
+        showMenu();
+      }
+      case PINPOINT_CHOICE -> {
+        pinpointOnGoogleMaps();
+        showMenu();
+      }
+      case EXIT_CHOICE -> {
+        say("Exiting the program...");
+        state = State.CLOSED;
+      }
+      default -> {
+        say("Invalid choice. Please try again.");
+        showMenu();
+      }
+    }
+  }
+
+  private void awaitLocation(String key, String type) {
+    this.key = key;
+    this.type = type;
+    state = State.LOCATION_INPUT;
+  }
+
+  /**
+   * Processes a location entered by the user.
+   *
+   * @param input The user's input.
+   * @param prefetched Predictions already fetched for the input, or null to fetch them.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void handleLocationInput(String input, JSONArray prefetched)
+      throws IOException, GoogleApiException {
+    logger.debug("Received {} '{}' from user", key, input);
+    if (type.equalsIgnoreCase("postal_code") && isImpossiblePinCode(input)) {
+      showMenu();
+      return;
+    }
+    JSONArray results = prefetched != null ? prefetched : fetchPredictions(input, type);
+    if (results.isEmpty()) {
+      logger.debug("No results found for input '{}' and type '{}'", input, type);
+      locationInfo.setValueByKey(key, input);
+      showMenu();
+      return;
+    }
+    offer(results);
+  }
+
+  /**
+   * Handles the user's answer to a list of predictions: an index to select, or another search.
+   *
+   * @param input The user's input.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void handleSelection(String input) throws IOException, GoogleApiException {
+    if (!InputValidator.isInteger(input)) {
+      searchAgain(input);
+      return;
+    }
+    int index = Integer.parseInt(input);
+    boolean inRange = index > 0 && index <= predictions.length();
+    if (!type.equalsIgnoreCase("postal_code")) {
+      if (inRange) {
+        selectAndReturnToMenu(index);
+      } else {
+        say("Invalid index. Please try again.");
+      }
+      return;
+    }
+    if (!inRange) {
+      searchAgain(input);
+      return;
+    }
+    // Only ask when the number could also be a postal code of the selected country
+    String country = locationInfo.getCountry().orElse(null);
+    if (PostalCodeValidator.classify(country, input) == PostalCodeValidator.Classification.VALID) {
+      pendingIndex = input;
+      state = State.INDEX_CONFIRMATION;
+      return;
+    }
+    selectAndReturnToMenu(index);
+  }
+
+  /**
+   * Handles the answer to whether a number that is also a valid postal code was meant as an index.
+   *
+   * @param input The user's answer.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void handleIndexConfirmation(String input) throws IOException, GoogleApiException {
+    state = State.SELECTION;
+    if (input.equalsIgnoreCase("y")) {
+      selectAndReturnToMenu(Integer.parseInt(pendingIndex));
+    } else {
+      searchAgain(pendingIndex);
+    }
+  }
+
+  /**
+   * Searches again with new input, offering the new predictions or, if there are none, using the
+   * input as entered.
+   *
+   * @param input The user's input.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void searchAgain(String input) throws IOException, GoogleApiException {
+    if (type.equalsIgnoreCase("postal_code") && isImpossiblePinCode(input)) {
+      return;
+    }
+    JSONArray results = fetchPredictions(input, type);
+    if (results.isEmpty()) {
+      locationInfo.setValueByKey(key, input);
+      showMenu();
+      return;
+    }
+    offer(results);
+  }
+
+  private void offer(JSONArray results) {
+    predictions = results;
+    displayOptions(results);
+    state = State.SELECTION;
+  }
+
+  private void selectAndReturnToMenu(int index) throws IOException, GoogleApiException {
+    selectPrediction(predictions, index - 1, type, key);
+    showMenu();
+  }
+
+  /**
+   * Checks the input against the postal code format of the selected country, so that codes which
+   * cannot exist are rejected without an API call. Only input that is nothing but a postal code is
+   * checked: anything else, such as a place name with or without a code, goes to autocomplete. A
+   * code that is merely incomplete, such as "5600" in India, also goes to autocomplete, which
+   * suggests the codes it could grow into.
+   *
+   * @param input The postal code input.
+   * @return True if the input cannot be a postal code of the selected country, false otherwise.
+   */
+  private boolean isImpossiblePinCode(String input) {
+    String country = locationInfo.getCountry().orElse(null);
+    if (!PostalCodeValidator.isFormatOnly(input)
+        || PostalCodeValidator.isValidPrefix(country, input)) {
+      return false;
+    }
+    say("'" + input + "' is not a valid postal code for " + country + ". Please try again.");
+    return true;
+  }
+
+  /**
+   * Selects a prediction based on the user's choice and updates location information.
+   *
+   * @param predictions The array of predictions from the API.
+   * @param index The index of the selected prediction.
+   * @param type The type parameter for the API call.
+   * @param key The key representing the location type.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void selectPrediction(JSONArray predictions, int index, String type, String key)
+      throws IOException, GoogleApiException {
+    JSONObject prediction = predictions.getJSONObject(index);
+    String mainText = prediction.getJSONObject("structured_formatting").getString("main_text");
+    locationInfo.setValueByKey(key, mainText);
+    // Only the types checked by isValidLocation are worth remembering
+    if (getLocationKey(type) != null) {
+      getPlaceNameIndex(type).add(mainText);
+    }
+    updateRelatedFields(prediction, key);
+    // Choosing a prediction ends the autocomplete session
+    sessionToken = UUID.randomUUID().toString();
+  }
+
+  /**
+   * Updates related fields in the location information based on the selected prediction.
+   *
+   * @param prediction The selected prediction.
+   * @param key The key representing the location type.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void updateRelatedFields(JSONObject prediction, String key)
+      throws IOException, GoogleApiException {
+    JSONArray terms = prediction.getJSONArray("terms");
+
+    switch (key) {
+      case "state" -> validateAndUpdateLocation(terms, "country");
+      case "city" -> {
+        validateAndUpdateLocation(terms, "country");
+        validateAndUpdateLocation(terms, "administrative_area_level_1");
+      }
+      case "address", "pinCode" -> {
+        validateAndUpdateLocation(terms, "country");
+        validateAndUpdateLocation(terms, "administrative_area_level_1");
+        validateAndUpdateLocation(terms, "locality");
+      }
+      default -> logger.debug("No additional fields to update for key: {}", key);
+    }
+  }
+
+  /**
+   * Validates and updates the location information based on the terms and type.
+   *
+   * @param terms The array of terms from the prediction.
+   * @param type The type parameter for the API call.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private void validateAndUpdateLocation(JSONArray terms, String type)
+      throws IOException, GoogleApiException {
+    for (int i = terms.length() - 1; i >= 0; i--) {
+      String termValue = terms.getJSONObject(i).getString("value");
+      if (isValidLocation(termValue, type)) {
+        String locationKey = getLocationKey(type);
+        if (locationKey != null) {
+          locationInfo.setValueByKey(locationKey, termValue);
+          terms.remove(i);
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Checks if the input is a valid location of the specified type.
+   *
+   * @param input The input string to validate.
+   * @param type The type parameter for the API call.
+   * @return True if valid, false otherwise.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private boolean isValidLocation(String input, String type)
+      throws IOException, GoogleApiException {
+    PlaceNameIndex placeNameIndex = getPlaceNameIndex(type);
+    if (placeNameIndex.matches(input)) {
+      logger.debug("Matched '{}' as {} locally", input, type);
+      return true;
+    }
+
+    JSONArray results = fetchPredictions(input, type);
+    if (!results.isEmpty()) {
+      String mainText =
+          results.getJSONObject(0).getJSONObject("structured_formatting").getString("main_text");
+
+      if (PlaceNameIndex.isMatch(mainText, input)) {
+        placeNameIndex.add(mainText);
+        placeNameIndex.add(input);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Gets predictions for the input. While Google is unavailable and the circuit breaker is open,
+   * or too busy to take the request in time, an empty array is returned, so the input is used as
+   * entered instead of failing.
+   *
+   * @param input The user's input.
+   * @param type The type parameter for the API call.
+   * @return The predictions, or an empty array if the endpoint is unavailable.
+   * @throws IOException If an I/O error occurs.
+   * @throws GoogleApiException If an error occurs related to the Google API.
+   */
+  private JSONArray fetchPredictions(String input, String type)
+      throws IOException, GoogleApiException {
+    try {
+      return googleApiService.getPredictions(input, type, queryContextFor(type));
+    } catch (GoogleApiException e) {
+      if (!GoogleApiService.CIRCUIT_OPEN_STATUS.equals(e.getStatusCode())
+          && !GoogleApiService.LOAD_SHED_STATUS.equals(e.getStatusCode())) {
+        throw e;
+      }
+      say("Suggestions are temporarily unavailable; using '" + input + "' as entered.");
+      return new JSONArray();
+    }
+  }
+
+  /**
+   * Builds the context narrowing predictions of a type: results must be in the country entered so
+   * far, except when looking for the country itself, and are preferred near the current location
+   * if it has been fetched.
+   *
+   * @param type The Google API location type.
+   * @return The query context.
+   */
+  private PlaceQueryContext queryContextFor(String type) {
+    PlaceQueryContext context = PlaceQueryContext.of(locationInfo, locationBias, sessionToken);
+    return type.equals("country") ? context.withoutCountry() : context;
+  }
+
+  /**
+   * Gets the index of place names known to be of the given type.
+   *
+   * @param type The Google API location type, one of those mapped by {@link #getLocationKey}.
+   * @return The place name index for the type.
+   */
+  private PlaceNameIndex getPlaceNameIndex(String type) {
+    return placeNameIndexes.get(type);
+  }
+
+  /**
+   * Maps the Google API location type to the LocationInfo key.
+   *
+   * @param type The Google API location type.
+   * @return The corresponding key in LocationInfo, or null if not applicable.
+   */
+  private String getLocationKey(String type) {
+    return switch (type) {
+      case "country" -> "country";
+      case "administrative_area_level_1" -> "state";
+      case "locality" -> "city";
+      default -> null;
+    };
+  }
+
+  /**
+   * Displays the list of prediction options to the user.
+   *
+   * @param predictions The array of predictions from the API.
+   */
+  private void displayOptions(JSONArray predictions) {
+    for (int i = 0; i < predictions.length(); i++) {
+      JSONObject prediction = predictions.getJSONObject(i);
+      say((i + 1) + ". " + prediction.getString("description"));
+    }
+  }
+
+  /** Uses the current location to update location information. */
+  private void useCurrentLocation() {
+    try {
+      say("Fetching your current location...");
+      JSONObject geoLocation = googleApiService.getGeolocation();
+      double latitude = geoLocation.getJSONObject("location").getDouble("lat");
+      double longitude = geoLocation.getJSONObject("location").getDouble("lng");
+
+      logger.debug("Coordinates: {}, {}", latitude, longitude);
+      locationBias =
+          new PlaceQueryContext.LocationBias(latitude, longitude, LOCATION_BIAS_RADIUS_METERS);
+
+      if (fillFromPostalCodeIndex(latitude, longitude)) {
+        return;
+      }
+      JSONObject geocodingData = googleApiService.getGeocodingData(latitude, longitude);
+      if (GeocodingParser.parseInto(geocodingData, locationInfo)) {
+        say("Location information updated based on your current location.");
+      } else {
+        say("No results found for the current location.");
+      }
+    } catch (GoogleApiException e) {
+      logger.error("Google API error: {}", e.getMessage());
+      say("An error occurred with the Google API: " + e.getMessage());
+    } catch (IOException e) {
+      logger.error("Error fetching current location", e);
+      say("Failed to fetch current location. Please try again or use manual input.");
+    }
+  }
+
+  /**
+   * Fills the country, state, city and pin code from the nearest postal code in the local index,
+   * leaving the street address to be entered. The index is only trusted for a postal code close
+   * enough to plausibly contain the coordinate.
+   *
+   * @return True if the location was filled, false if Google must be asked instead.
+   */
+  private boolean fillFromPostalCodeIndex(double latitude, double longitude) {
+    if (postalCodeIndex == null) {
+      return false;
+    }
+    Optional<PostalCodeIndex.Place> place = postalCodeIndex.nearest(latitude, longitude);
+    if (place.isEmpty() || place.get().distanceKm() > MAX_POSTAL_CODE_DISTANCE_KM) {
+      return false;
+    }
+    logger.debug("Nearest postal code {} is {} km away", place.get(), place.get().distanceKm());
+    locationInfo.clear();
+    locationInfo.setCountry(place.get().country());
+    locationInfo.setState(blankToNull(place.get().state()));
+    locationInfo.setCity(blankToNull(place.get().city()));
+    locationInfo.setPinCode(place.get().postalCode());
+    say("Location information updated based on your current location.");
+    say("Enter your street address with option 4.");
+    return true;
+  }
+
+  private static String blankToNull(String value) {
+    return value.isBlank() ? null : value;
+  }
+
+  /** Opens the location in Google Maps, or shows its URL when not opening a local browser. */
+  private void pinpointOnGoogleMaps() {
+    try {
+      String addressInput =
+          Stream.of(
+                  locationInfo.getAddress(),
+                  locationInfo.getCity(),
+                  locationInfo.getState(),
+                  locationInfo.getCountry())
+              .flatMap(Optional::stream)
+              .filter(value -> !value.isEmpty())
+              .collect(Collectors.joining(", "));
+      if (addressInput.isEmpty()) {
+        say(
+            "Error: Insufficient location data. Please provide at least one address component"
+                + " before using this feature.");
+        return;
+      }
+
+      String completeAddress = googleApiService.getCompleteAddress(addressInput);
+      if (completeAddress == null) {
+        say("Error: Complete address could not be found. Please try again.");
+        return;
+      }
+      String googleMapsUrl = googleApiService.constructGoogleMapsURL(completeAddress);
+      if (openMapsInBrowser) {
+        GoogleMapsUtil.openInBrowser(googleMapsUrl);
+      } else {
+        say("Google Maps: " + googleMapsUrl);
+      }
+    } catch (Exception e) {
+      logger.error("Error pinning on Google Maps", e);
+      say("An error occurred while trying to open Google Maps: " + e.getMessage());
+    }
+  }
+
+  /** Clears all location information. */
+  private void clearLocationInfo() {
+    locationInfo.clear();
+    locationBias = null;
+    say("All location information has been cleared.");
+  }
+
+  /** Shows the current location information and the menu, and waits for a menu choice. */
+  private void showMenu() {
+    predictions = null;
+    state = State.MENU;
+    displayLocationInfo();
+    displayMenu();
+  }
+
+  /** Displays the main menu to the user. */
+  private void displayMenu() {
+    say("");
+    say("Please enter the index of your choice: ");
+    say("1. Country");
+    say("2. State");
+    say("3. City");
+    say("4. Address");
+    say("5. PinCode");
+    say("6. Use Current Location");
+    say("7. Clear");
+    say("8. Pinpoint on Google Maps");
+    say("9. Exit");
+  }
+
+  /** Displays the current location information. */
+  private void displayLocationInfo() {
+    say("");
+    say("Current Location Information:");
+    say("Country: " + locationInfo.getCountry().orElse("Not set"));
+    say("State: " + locationInfo.getState().orElse("Not set"));
+    say("City: " + locationInfo.getCity().orElse("Not set"));
+    say("Address: " + locationInfo.getAddress().orElse("Not set"));
+    say("PinCode: " + locationInfo.getPinCode().orElse("Not set"));
+  }
+
+  private String promptFor(State state) {
+    return switch (state) {
+      case MENU -> MENU_PROMPT;
+      case LOCATION_INPUT -> "Please enter the " + key + ": ";
+      case SELECTION -> SELECTION_PROMPT;
+      case INDEX_CONFIRMATION -> CONFIRMATION_PROMPT;
+      case CLOSED -> null;
+    };
+  }
+
+  private void say(String line) {
+    output.append(line).append('\n');
+  }
+
+  private Reply reply(String prompt) {
+    Reply reply = new Reply(output.toString(), prompt);
+    output.setLength(0);
+    return reply;
+  }
+}
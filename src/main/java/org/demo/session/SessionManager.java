@@ -0,0 +1,219 @@
+package org.demo.session;
+
+import java.io.Closeable;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import org.demo.service.GoogleApiService;
+import org.demo.util.PlaceNameIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The SessionManager class hosts many {@link LocationSession}s in one process. Sessions are kept
+ * in a concurrent map keyed by an unguessable id, share one {@link GoogleApiService} and one set of
+ * place name indexes, and are evicted once idle for longer than the idle timeout. The indexes keep
+ * a bounded number of learned names, so they do not grow with the number of sessions served.
+ *
+ * <p>The store itself takes no locks: finding and evicting sessions are single map operations, and
+ * an eviction only removes the session it examined. Creating a session first reserves a slot in an
+ * atomic count, so concurrent creates cannot overshoot the maximum, and every removal gives its
+ * slot back. Each session serializes its own lines.
+ */
+public final class SessionManager implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionManager.class);
+
+  private static final int ID_BYTES = 16;
+  private static final long MIN_SWEEP_MILLIS = 1_000;
+
+  /**
+   * A newly created session.
+   *
+   * @param id The session id.
+   * @param reply The session's greeting and first prompt.
+   */
+  public record CreatedSession(String id, LocationSession.Reply reply) {}
+
+  /** A session and when it was last used. */
+  private static final class Entry {
+    private final LocationSession session;
+    private volatile long lastActiveNanos;
+
+    Entry(LocationSession session, long now) {
+      this.session = session;
+      this.lastActiveNanos = now;
+    }
+  }
+
+  private final Map<String, Entry> sessions = new ConcurrentHashMap<>();
+  private final AtomicInteger reservedSlots = new AtomicInteger();
+  private final GoogleApiService googleApiService;
+  private final Map<String, PlaceNameIndex> placeNameIndexes;
+  private final long idleTimeoutNanos;
+  private final int maxSessions;
+  private final LongSupplier clock;
+  private final SecureRandom random = new SecureRandom();
+  private final ScheduledExecutorService sweeper =
+      Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+
+  /**
+   * Constructs a new SessionManager.
+   *
+   * @param googleApiService The service shared by all sessions.
+   * @param idleTimeout How long a session may go without input before it is evicted.
+   * @param maxSessions The maximum number of sessions hosted at once.
+   * @param clock The source of the current time in nanoseconds.
+   */
+  public SessionManager(
+      GoogleApiService googleApiService,
+      Duration idleTimeout,
+      int maxSessions,
+      LongSupplier clock) {
+    this(
+        googleApiService,
+        LocationSession.newPlaceNameIndexes(),
+        idleTimeout,
+        maxSessions,
+        clock);
+  }
+
+  /**
+   * Constructs a new SessionManager whose sessions share the given place name indexes.
+   *
+   * @param googleApiService The service shared by all sessions.
+   * @param placeNameIndexes The place name indexes shared by all sessions, as created by {@link
+   *     LocationSession#newPlaceNameIndexes(int)}.
+   * @param idleTimeout How long a session may go without input before it is evicted.
+   * @param maxSessions The maximum number of sessions hosted at once.
+   * @param clock The source of the current time in nanoseconds.
+   */
+  public SessionManager(
+      GoogleApiService googleApiService,
+      Map<String, PlaceNameIndex> placeNameIndexes,
+      Duration idleTimeout,
+      int maxSessions,
+      LongSupplier clock) {
+    this.googleApiService = googleApiService;
+    this.placeNameIndexes = placeNameIndexes;
+    this.idleTimeoutNanos = idleTimeout.toNanos();
+    this.maxSessions = maxSessions;
+    this.clock = clock;
+    long sweepMillis = Math.max(MIN_SWEEP_MILLIS, idleTimeout.toMillis() / 4);
+    sweeper.scheduleWithFixedDelay(
+        this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Creates a session.
+   *
+   * @return The new session's id and greeting, or empty if the manager is full.
+   */
+  public Optional<CreatedSession> create() {
+    if (reservedSlots.getAndUpdate(n -> n < maxSessions ? n + 1 : n) >= maxSessions) {
+      return Optional.empty();
+    }
+    LocationSession session;
+    try {
+      session = new LocationSession(googleApiService, placeNameIndexes, false);
+    } catch (RuntimeException e) {
+      reservedSlots.decrementAndGet();
+      throw e;
+    }
+    String id = newId();
+    sessions.put(id, new Entry(session, clock.getAsLong()));
+    return Optional.of(new CreatedSession(id, session.start()));
+  }
+
+  /**
+   * Handles a line of input for a session. A session that ends is removed.
+   *
+   * @param id The session id.
+   * @param line The line entered by the user.
+   * @return The session's reply, or empty if there is no such session.
+   */
+  public Optional<LocationSession.Reply> handle(String id, String line) {
+    Entry entry = sessions.get(id);
+    if (entry == null) {
+      return Optional.empty();
+    }
+    entry.lastActiveNanos = clock.getAsLong();
+    LocationSession.Reply reply = entry.session.handle(line);
+    entry.lastActiveNanos = clock.getAsLong();
+    if (reply.isClosed()) {
+      remove(id, entry);
+    }
+    return Optional.of(reply);
+  }
+
+  /**
+   * Removes a session.
+   *
+   * @param id The session id.
+   * @return True if the session existed, false otherwise.
+   */
+  public boolean remove(String id) {
+    Entry entry = sessions.get(id);
+    return entry != null && remove(id, entry);
+  }
+
+  /** Removes a session if it is still the given entry, and gives back its slot. */
+  private boolean remove(String id, Entry entry) {
+    if (!sessions.remove(id, entry)) {
+      return false;
+    }
+    reservedSlots.decrementAndGet();
+    return true;
+  }
+
+  /**
+   * Gets the number of sessions hosted.
+   *
+   * @return The number of sessions.
+   */
+  public int size() {
+    return sessions.size();
+  }
+
+  /**
+   * Evicts the sessions that have been idle for longer than the idle timeout. This runs
+   * periodically in the background.
+   *
+   * @return The number of sessions evicted.
+   */
+  public int evictIdle() {
+    long now = clock.getAsLong();
+    int evicted = 0;
+    for (Map.Entry<String, Entry> session : sessions.entrySet()) {
+      Entry entry = session.getValue();
+      if (now - entry.lastActiveNanos > idleTimeoutNanos && remove(session.getKey(), entry)) {
+        evicted++;
+      }
+    }
+    if (evicted > 0) {
+      logger.info("Evicted {} idle sessions; {} remain", evicted, sessions.size());
+    }
+    return evicted;
+  }
+
+  private String newId() {
+    byte[] bytes = new byte[ID_BYTES];
+    random.nextBytes(bytes);
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  /** Stops evicting sessions and drops them all. The shared GoogleApiService is not closed. */
+  @Override
+  public void close() {
+    sweeper.shutdownNow();
+    sessions.keySet().forEach(this::remove);
+  }
+}
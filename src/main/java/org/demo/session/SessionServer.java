@@ -0,0 +1,170 @@
+package org.demo.session;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The SessionServer class exposes a {@link SessionManager} over HTTP, one line of input per
+ * request, so any HTTP client can drive an address-entry session:
+ *
+ * <ul>
+ *   <li>{@code POST /sessions} creates a session and answers 201 with its {@code Location} and the
+ *       menu, or 503 when the server is full.
+ *   <li>{@code POST /sessions/<id>} sends the request body as one line and answers with the
+ *       session's output followed by its next prompt. The header {@code X-Session-Closed: true}
+ *       marks the last reply of a session. Unknown or evicted sessions answer 404.
+ *   <li>{@code DELETE /sessions/<id>} ends a session.
+ *   <li>{@code GET /sessions} answers with the number of sessions hosted.
+ * </ul>
+ *
+ * <p>Requests are handled on virtual threads, so a session waiting on Google ties up no platform
+ * thread.
+ */
+public final class SessionServer implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(SessionServer.class);
+
+  private static final String PATH = "/sessions";
+  private static final int MAX_LINE_BYTES = 4096;
+
+  private final SessionManager sessionManager;
+  private final HttpServer server;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  /**
+   * Starts a session server listening on the given port.
+   *
+   * @param port The port to listen on, or 0 to pick a free port.
+   * @param sessionManager The sessions to serve.
+   * @throws IOException If the port cannot be bound.
+   */
+  public SessionServer(int port, SessionManager sessionManager) throws IOException {
+    this.sessionManager = sessionManager;
+    this.server = HttpServer.create(new InetSocketAddress(port), 0);
+    server.createContext(PATH, this::handle);
+    server.setExecutor(executor);
+    server.start();
+    logger.info("Session server listening on port {}", getPort());
+  }
+
+  /**
+   * Gets the port the server is listening on.
+   *
+   * @return The port.
+   */
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      String path = exchange.getRequestURI().getPath();
+      String method = exchange.getRequestMethod();
+      String id = path.length() > PATH.length() + 1 ? path.substring(PATH.length() + 1) : "";
+      if (id.isEmpty()) {
+        switch (method) {
+          case "POST" -> createSession(exchange);
+          case "GET" ->
+              sendJson(exchange, 200, new JSONObject().put("sessions", sessionManager.size()));
+          default -> send(exchange, 405, "Method not allowed\n");
+        }
+        return;
+      }
+      switch (method) {
+        case "POST" -> handleLine(exchange, id);
+        case "DELETE" -> send(exchange, sessionManager.remove(id) ? 204 : 404, "");
+        default -> send(exchange, 405, "Method not allowed\n");
+      }
+    } catch (RuntimeException e) {
+      logger.error("Error handling session request", e);
+    }
+  }
+
+  private void createSession(HttpExchange exchange) throws IOException {
+    Optional<SessionManager.CreatedSession> created = sessionManager.create();
+    if (created.isEmpty()) {
+      send(exchange, 503, "Too many sessions; try again later\n");
+      return;
+    }
+    exchange.getResponseHeaders().set("Location", PATH + "/" + created.get().id());
+    send(exchange, 201, render(created.get().reply()));
+  }
+
+  private void handleLine(HttpExchange exchange, String id) throws IOException {
+    String line = readLine(exchange.getRequestBody());
+    if (line == null) {
+      send(exchange, 413, "Input too long\n");
+      return;
+    }
+    Optional<LocationSession.Reply> reply = sessionManager.handle(id, line);
+    if (reply.isEmpty()) {
+      send(exchange, 404, "No such session\n");
+      return;
+    }
+    if (reply.get().isClosed()) {
+      exchange.getResponseHeaders().set("X-Session-Closed", "true");
+    }
+    send(exchange, 200, render(reply.get()));
+  }
+
+  /**
+   * Reads a request body as one line of input.
+   *
+   * @param body The request body.
+   * @return The first line of the body, or null if the body is too long.
+   * @throws IOException If an I/O error occurs.
+   */
+  private static String readLine(InputStream body) throws IOException {
+    byte[] bytes = body.readNBytes(MAX_LINE_BYTES + 1);
+    if (bytes.length > MAX_LINE_BYTES) {
+      return null;
+    }
+    String text = new String(bytes, StandardCharsets.UTF_8);
+    int newline = text.indexOf('\n');
+    return newline >= 0 ? text.substring(0, newline) : text;
+  }
+
+  private static String render(LocationSession.Reply reply) {
+    return reply.isClosed() ? reply.output() : reply.output() + reply.prompt() + "\n";
+  }
+
+  private static void sendJson(HttpExchange exchange, int status, JSONObject json)
+      throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    write(exchange, status, json.toString());
+  }
+
+  private static void send(HttpExchange exchange, int status, String text) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+    write(exchange, status, text);
+  }
+
+  private static void write(HttpExchange exchange, int status, String text) throws IOException {
+    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+    exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+    if (bytes.length > 0) {
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(bytes);
+      }
+    }
+  }
+
+  /** Stops the server. The session manager is not closed. */
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,58 @@
+package org.demo.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The ApiCallEvent class is a JFR event for one HTTP exchange with Google, including replayed
+ * exchanges, hedged duplicates and geolocation POSTs. Its duration covers the time queued for the
+ * endpoint's concurrency limit as well as the round trip.
+ */
+@Name("org.demo.ApiCall")
+@Label("Google API Call")
+@Category({"Postal Mailing Service", "Google API"})
+@Description("An HTTP exchange with a Google API")
+public class ApiCallEvent extends jdk.jfr.Event {
+
+  @Label("Span Id")
+  @Description("The user action this call belongs to, or 0 if none")
+  public long spanId;
+
+  @Label("Endpoint")
+  public String endpoint;
+
+  @Label("Method")
+  public String method;
+
+  @Label("URL")
+  @Description("The request URL without the API key")
+  public String url;
+
+  @Label("Request Class")
+  public String requestClass;
+
+  @Label("Status Code")
+  @Description("The HTTP status code, or 0 if no response was received")
+  public int statusCode;
+
+  @Label("Response Size")
+  @Description("The size of the response body in UTF-8 bytes")
+  @DataAmount
+  public long responseBytes;
+
+  @Label("Queue Time")
+  @Timespan(Timespan.MILLISECONDS)
+  public long queueMillis;
+
+  @Label("Replayed")
+  @Description("Whether the response came from a replaying cassette")
+  public boolean replayed;
+
+  @Label("Outcome")
+  @Description("OK, SHED, CANCELLED or ERROR")
+  public String outcome;
+}
@@ -0,0 +1,27 @@
+package org.demo.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The CacheDecisionEvent class is a JFR event for a response cache lookup made before calling
+ * Google. Its duration is the time spent in the cache, which includes any shared cache peers.
+ */
+@Name("org.demo.CacheDecision")
+@Label("Response Cache Lookup")
+@Category({"Postal Mailing Service", "Google API"})
+@Description("A response cache lookup and whether it avoided an API call")
+public class CacheDecisionEvent extends jdk.jfr.Event {
+
+  @Label("Span Id")
+  @Description("The user action this lookup belongs to, or 0 if none")
+  public long spanId;
+
+  @Label("Key")
+  public String key;
+
+  @Label("Hit")
+  public boolean hit;
+}
@@ -0,0 +1,31 @@
+package org.demo.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The ParseEvent class is a JFR event for parsing a Google response, either from JSON text or from
+ * JSON into a {@code LocationInfo}.
+ */
+@Name("org.demo.Parse")
+@Label("Response Parse")
+@Category({"Postal Mailing Service", "Google API"})
+@Description("Parsing of a Google API response")
+public class ParseEvent extends jdk.jfr.Event {
+
+  @Label("Span Id")
+  @Description("The user action this parse belongs to, or 0 if none")
+  public long spanId;
+
+  @Label("Target")
+  @Description("What the response was parsed into")
+  public String target;
+
+  @Label("Input Size")
+  @Description("The size of the parsed text in UTF-8 bytes, or 0 if already parsed")
+  @DataAmount
+  public long inputBytes;
+}
@@ -0,0 +1,60 @@
+package org.demo.trace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The TraceRecording class starts a JFR recording of this application's events that is written to
+ * a trace file when the JVM exits. The file can be opened in JDK Mission Control or printed with
+ * {@code jfr print --categories "Postal Mailing Service" <file>}.
+ */
+public class TraceRecording {
+
+  private static final Logger logger = LoggerFactory.getLogger(TraceRecording.class);
+
+  /** The environment variable naming the trace file; tracing is off when it is unset. */
+  public static final String TRACE_FILE_ENV = "POSTAL_TRACE_FILE";
+
+  private static final List<Class<? extends Event>> EVENTS =
+      List.of(
+          UserActionEvent.class, ApiCallEvent.class, CacheDecisionEvent.class, ParseEvent.class);
+
+  private TraceRecording() {}
+
+  /**
+   * Starts a recording if {@link #TRACE_FILE_ENV} is set. The recording uses the JDK's default
+   * settings, so GC and thread events give context, and records every application event.
+   *
+   * @return The recording, or null if tracing is off.
+   * @throws IOException If the trace file cannot be used.
+   */
+  public static Recording startFromEnvironment() throws IOException {
+    String traceFile = System.getenv(TRACE_FILE_ENV);
+    if (traceFile == null || traceFile.isBlank()) {
+      return null;
+    }
+    Recording recording;
+    try {
+      recording = new Recording(Configuration.getConfiguration("default"));
+    } catch (ParseException e) {
+      throw new IOException("Cannot load the default JFR configuration", e);
+    }
+    recording.setName("postal-mailing-service");
+    for (Class<? extends Event> event : EVENTS) {
+      recording.enable(event).withThreshold(Duration.ZERO).withoutStackTrace();
+    }
+    recording.setDestination(Path.of(traceFile));
+    recording.setDumpOnExit(true);
+    recording.start();
+    logger.info("Recording trace events to {}", traceFile);
+    return recording;
+  }
+}
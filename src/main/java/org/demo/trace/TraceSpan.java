@@ -0,0 +1,141 @@
+package org.demo.trace;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The TraceSpan class correlates the JFR events caused by one user action. A span is started on
+ * the thread handling the action and is current on that thread until closed; work handed to other
+ * threads joins the span explicitly so its events carry the same span id.
+ *
+ * <pre>{@code
+ * try (TraceSpan span = TraceSpan.start("Select address")) {
+ *   ...
+ * }
+ * }</pre>
+ */
+public final class TraceSpan implements AutoCloseable {
+
+  private static final AtomicLong NEXT_ID = new AtomicLong(1);
+  private static final ThreadLocal<TraceSpan> CURRENT = new ThreadLocal<>();
+
+  private final long id;
+  private final AtomicInteger apiCalls;
+  private final AtomicInteger cacheHits;
+  private final UserActionEvent event;
+  private final TraceSpan previous;
+
+  private TraceSpan(
+      long id,
+      AtomicInteger apiCalls,
+      AtomicInteger cacheHits,
+      UserActionEvent event,
+      TraceSpan previous) {
+    this.id = id;
+    this.apiCalls = apiCalls;
+    this.cacheHits = cacheHits;
+    this.event = event;
+    this.previous = previous;
+  }
+
+  /**
+   * Starts a span for a user action and makes it current on this thread.
+   *
+   * @param action The name of the action.
+   * @return The span, which records its UserActionEvent and restores the previous span on close.
+   */
+  public static TraceSpan start(String action) {
+    UserActionEvent event = new UserActionEvent();
+    event.action = action;
+    event.begin();
+    long id = NEXT_ID.getAndIncrement();
+    TraceSpan span =
+        new TraceSpan(id, new AtomicInteger(), new AtomicInteger(), event, CURRENT.get());
+    CURRENT.set(span);
+    return span;
+  }
+
+  /**
+   * Makes a span current on this thread, typically one captured with {@link #current()} on the
+   * thread that handed over the work.
+   *
+   * @param span The span to join, or null for none.
+   * @return A handle that restores the previous span on close without recording an event.
+   */
+  public static TraceSpan join(TraceSpan span) {
+    TraceSpan joined =
+        span != null
+            ? new TraceSpan(span.id, span.apiCalls, span.cacheHits, null, CURRENT.get())
+            : new TraceSpan(0, new AtomicInteger(), new AtomicInteger(), null, CURRENT.get());
+    CURRENT.set(joined);
+    return joined;
+  }
+
+  /**
+   * Gets the span current on this thread.
+   *
+   * @return The current span, or null if none.
+   */
+  public static TraceSpan current() {
+    TraceSpan span = CURRENT.get();
+    return span != null && span.id != 0 ? span : null;
+  }
+
+  /**
+   * Gets the id of the span current on this thread.
+   *
+   * @return The span id, or 0 if none.
+   */
+  public static long currentId() {
+    TraceSpan span = CURRENT.get();
+    return span != null ? span.id : 0;
+  }
+
+  /** Counts an HTTP exchange with Google against the current span. */
+  public static void countApiCall() {
+    TraceSpan span = CURRENT.get();
+    if (span != null) {
+      span.apiCalls.incrementAndGet();
+    }
+  }
+
+  /** Counts a response cache hit against the current span. */
+  public static void countCacheHit() {
+    TraceSpan span = CURRENT.get();
+    if (span != null) {
+      span.cacheHits.incrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the id of this span.
+   *
+   * @return The span id.
+   */
+  public long getId() {
+    return id;
+  }
+
+  /**
+   * Gets the number of HTTP exchanges with Google made so far for this span.
+   *
+   * @return The number of API calls.
+   */
+  public int getApiCalls() {
+    return apiCalls.get();
+  }
+
+  @Override
+  public void close() {
+    CURRENT.set(previous);
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.spanId = id;
+        event.apiCalls = apiCalls.get();
+        event.cacheHits = cacheHits.get();
+        event.commit();
+      }
+    }
+  }
+}
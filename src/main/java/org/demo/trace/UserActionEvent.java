@@ -0,0 +1,30 @@
+package org.demo.trace;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * The UserActionEvent class is a JFR event spanning one user action, such as a menu choice. The
+ * events recorded while it runs carry its span id.
+ */
+@Name("org.demo.UserAction")
+@Label("User Action")
+@Category({"Postal Mailing Service"})
+@Description("A user action and the API calls it caused")
+public class UserActionEvent extends jdk.jfr.Event {
+
+  @Label("Span Id")
+  public long spanId;
+
+  @Label("Action")
+  public String action;
+
+  @Label("API Calls")
+  @Description("The number of HTTP exchanges with Google made for the action")
+  public int apiCalls;
+
+  @Label("Cache Hits")
+  public int cacheHits;
+}
@@ -0,0 +1,79 @@
+package org.demo.util;
+
+import org.demo.model.LocationInfo;
+import org.demo.trace.ParseEvent;
+import org.demo.trace.TraceSpan;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The GeocodingParser class maps Google Geocoding API responses onto {@link LocationInfo} fields.
+ */
+public class GeocodingParser {
+
+  /**
+   * Parses the first result of the geocoding data into the given location information. The
+   * location information is cleared first, unless the response has no results.
+   *
+   * @param geocodingData The JSONObject response from the geocoding API.
+   * @param locationInfo The location information to update.
+   * @return True if a result was found, false otherwise.
+   */
+  public static boolean parseInto(JSONObject geocodingData, LocationInfo locationInfo) {
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    try {
+      return parseFirstResult(geocodingData, locationInfo);
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.spanId = TraceSpan.currentId();
+        event.target = "LocationInfo";
+        event.commit();
+      }
+    }
+  }
+
+  private static boolean parseFirstResult(JSONObject geocodingData, LocationInfo locationInfo) {
+    JSONArray results = geocodingData.getJSONArray("results");
+    if (results.isEmpty()) {
+      return false;
+    }
+
+    JSONArray addressComponents = results.getJSONObject(0).getJSONArray("address_components");
+
+    locationInfo.clear();
+
+    for (int i = 0; i < addressComponents.length(); i++) {
+      JSONObject component = addressComponents.getJSONObject(i);
+      JSONArray types = component.getJSONArray("types");
+      String longName = component.getString("long_name");
+
+      updateLocationInfo(locationInfo, types, longName);
+    }
+    return true;
+  }
+
+  /**
+   * Updates the location information based on the types of address components.
+   *
+   * @param locationInfo The location information to update.
+   * @param types The types of the address component.
+   * @param longName The long name of the address component.
+   */
+  private static void updateLocationInfo(
+      LocationInfo locationInfo, JSONArray types, String longName) {
+    for (Object typeObj : types) {
+      String type = typeObj.toString();
+      switch (type) {
+        case "country" -> locationInfo.setCountry(longName);
+        case "administrative_area_level_1" -> locationInfo.setState(longName);
+        case "locality" -> locationInfo.setCity(longName);
+        case "postal_code" -> locationInfo.setPinCode(longName);
+        case "street_address", "route", "neighborhood", "sublocality", "street_number" ->
+            locationInfo.appendAddress(longName);
+        default -> {}
+      }
+    }
+  }
+}
@@ -0,0 +1,355 @@
+package org.demo.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The PlaceNameIndex class matches place names locally, tolerating case, accents, punctuation and
+ * small typos.
+ *
+ * <p>Names are stored in a normalized form and indexed with the symmetric-delete approach: every
+ * string reachable from a name by deleting up to {@link #MAX_EDIT_DISTANCE} characters points back
+ * to that name. A lookup generates the same deletes for the input, so candidates are found with a
+ * few hash lookups and only those candidates are compared by edit distance. The allowed distance
+ * grows with the length of the input, so short names must match exactly.
+ *
+ * <p>Names loaded from a resource are kept for good. Names learned while the program runs are
+ * capped, since each one stores a few hundred deletes; once the cap is reached the least recently
+ * added or matched learned name is dropped.
+ */
+public class PlaceNameIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(PlaceNameIndex.class);
+
+  /** The largest edit distance tolerated for any input. */
+  public static final int MAX_EDIT_DISTANCE = 2;
+
+  /** The default number of learned names kept. */
+  public static final int DEFAULT_MAX_LEARNED_NAMES = 10_000;
+
+  private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+  private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+  private final Map<String, String> names = new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> deletes = new ConcurrentHashMap<>();
+  private final Set<String> permanent = ConcurrentHashMap.newKeySet();
+  // Learned names from least to most recently used; lock guards it and every write to the maps
+  private final LinkedHashSet<String> learned = new LinkedHashSet<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final int maxLearnedNames;
+
+  /** Creates an empty index that keeps up to {@link #DEFAULT_MAX_LEARNED_NAMES} learned names. */
+  public PlaceNameIndex() {
+    this(DEFAULT_MAX_LEARNED_NAMES);
+  }
+
+  /**
+   * Creates an empty index.
+   *
+   * @param maxLearnedNames The number of learned names to keep before dropping the least recently
+   *     used.
+   */
+  public PlaceNameIndex(int maxLearnedNames) {
+    if (maxLearnedNames < 1) {
+      throw new IllegalArgumentException("maxLearnedNames must be positive");
+    }
+    this.maxLearnedNames = maxLearnedNames;
+  }
+
+  /**
+   * Creates an index of the names listed one per line in a classpath resource.
+   *
+   * @param resource The resource path.
+   * @return The index, which is empty if the resource is missing.
+   */
+  public static PlaceNameIndex fromResource(String resource) {
+    return fromResource(resource, DEFAULT_MAX_LEARNED_NAMES);
+  }
+
+  /**
+   * Creates an index of the names listed one per line in a classpath resource, which are kept for
+   * good, with room for a number of learned names.
+   *
+   * @param resource The resource path.
+   * @param maxLearnedNames The number of learned names to keep.
+   * @return The index, which has no loaded names if the resource is missing.
+   */
+  public static PlaceNameIndex fromResource(String resource, int maxLearnedNames) {
+    PlaceNameIndex index = new PlaceNameIndex(maxLearnedNames);
+    InputStream in = PlaceNameIndex.class.getResourceAsStream(resource);
+    if (in == null) {
+      logger.warn("Place name resource {} not found", resource);
+      return index;
+    }
+    try (BufferedReader reader =
+        new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (!line.isBlank()) {
+          index.add(line.trim(), true);
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("Error reading place name resource {}", resource, e);
+    }
+    return index;
+  }
+
+  /**
+   * Adds a learned place name to the index, dropping the least recently used learned name if the
+   * index is full.
+   *
+   * @param name The place name.
+   */
+  public void add(String name) {
+    add(name, false);
+  }
+
+  /**
+   * Gets the number of names in the index, both loaded and learned.
+   *
+   * @return The number of names.
+   */
+  public int size() {
+    return names.size();
+  }
+
+  private void add(String name, boolean keep) {
+    String normalized = normalize(name);
+    if (normalized.isEmpty()) {
+      return;
+    }
+    lock.lock();
+    try {
+      if (names.putIfAbsent(normalized, name) != null) {
+        if (keep) {
+          learned.remove(normalized);
+          permanent.add(normalized);
+        } else {
+          touch(normalized);
+        }
+        return;
+      }
+      for (String delete : generateDeletes(normalized)) {
+        deletes.computeIfAbsent(delete, d -> ConcurrentHashMap.newKeySet()).add(normalized);
+      }
+      if (keep) {
+        permanent.add(normalized);
+        return;
+      }
+      learned.add(normalized);
+      if (learned.size() > maxLearnedNames) {
+        Iterator<String> eldest = learned.iterator();
+        String evicted = eldest.next();
+        eldest.remove();
+        remove(evicted);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Marks a learned name as the most recently used. Must be called with the lock held. */
+  private void touch(String normalized) {
+    if (learned.remove(normalized)) {
+      learned.add(normalized);
+    }
+  }
+
+  /** Removes a name and its deletes. Must be called with the lock held. */
+  private void remove(String normalized) {
+    names.remove(normalized);
+    for (String delete : generateDeletes(normalized)) {
+      deletes.computeIfPresent(
+          delete,
+          (d, candidates) -> {
+            candidates.remove(normalized);
+            return candidates.isEmpty() ? null : candidates;
+          });
+    }
+  }
+
+  /**
+   * Finds the indexed name closest to the input, within the edit distance allowed for its length.
+   *
+   * @param input The place name to look up.
+   * @return The closest indexed name as it was added, or empty if none is close enough.
+   */
+  public Optional<String> bestMatch(String input) {
+    String normalized = normalize(input);
+    if (normalized.isEmpty()) {
+      return Optional.empty();
+    }
+    String exact = names.get(normalized);
+    if (exact != null) {
+      used(normalized);
+      return Optional.of(exact);
+    }
+
+    int allowed = allowedDistance(normalized);
+    String best = null;
+    int bestDistance = allowed + 1;
+    for (String delete : generateDeletes(normalized)) {
+      Set<String> candidates = deletes.get(delete);
+      if (candidates == null) {
+        continue;
+      }
+      for (String candidate : candidates) {
+        int distance = editDistance(normalized, candidate, bestDistance - 1);
+        if (distance < bestDistance) {
+          best = candidate;
+          bestDistance = distance;
+        }
+      }
+    }
+    if (best == null) {
+      return Optional.empty();
+    }
+    used(best);
+    return Optional.ofNullable(names.get(best));
+  }
+
+  /** Keeps a learned name that was just matched from being the next one dropped. */
+  private void used(String normalized) {
+    if (permanent.contains(normalized)) {
+      return;
+    }
+    lock.lock();
+    try {
+      touch(normalized);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks whether the input matches an indexed name.
+   *
+   * @param input The place name to look up.
+   * @return True if an indexed name is within the allowed edit distance, false otherwise.
+   */
+  public boolean matches(String input) {
+    return bestMatch(input).isPresent();
+  }
+
+  /**
+   * Checks whether a place name returned by Google matches the input, either because it contains
+   * the input or because the two are within the allowed edit distance.
+   *
+   * @param candidate The place name returned by Google.
+   * @param input The place name entered or extracted from a prediction.
+   * @return True if the names match, false otherwise.
+   */
+  public static boolean isMatch(String candidate, String input) {
+    String normalizedCandidate = normalize(candidate);
+    String normalizedInput = normalize(input);
+    if (normalizedInput.isEmpty()) {
+      return false;
+    }
+    if (normalizedCandidate.contains(normalizedInput)) {
+      return true;
+    }
+    int allowed = allowedDistance(normalizedInput);
+    return editDistance(normalizedInput, normalizedCandidate, allowed) <= allowed;
+  }
+
+  /**
+   * Normalizes a place name by removing accents, lowercasing, and collapsing punctuation and
+   * whitespace into single spaces.
+   *
+   * @param name The place name.
+   * @return The normalized name.
+   */
+  public static String normalize(String name) {
+    String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+    String stripped = DIACRITICS.matcher(decomposed).replaceAll("");
+    return NON_ALPHANUMERIC.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+  }
+
+  /** Short names must match exactly; longer names may contain one or two typos. */
+  private static int allowedDistance(String normalized) {
+    int length = normalized.length();
+    if (length <= 3) {
+      return 0;
+    }
+    return length <= 7 ? 1 : MAX_EDIT_DISTANCE;
+  }
+
+  /** Generates the string itself and every string reachable by up to two deletions. */
+  private static Set<String> generateDeletes(String word) {
+    Set<String> result = new HashSet<>();
+    result.add(word);
+    Set<String> frontier = Set.of(word);
+    for (int distance = 0; distance < MAX_EDIT_DISTANCE; distance++) {
+      Set<String> next = new HashSet<>();
+      for (String s : frontier) {
+        for (int i = 0; i < s.length(); i++) {
+          String delete = s.substring(0, i) + s.substring(i + 1);
+          if (result.add(delete)) {
+            next.add(delete);
+          }
+        }
+      }
+      frontier = next;
+    }
+    return result;
+  }
+
+  /**
+   * Computes the optimal string alignment distance (Levenshtein with adjacent transpositions),
+   * giving up once it exceeds the limit.
+   *
+   * @return The distance, or {@code limit + 1} if it exceeds the limit.
+   */
+  private static int editDistance(String a, String b, int limit) {
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return limit + 1;
+    }
+    int[] previous2 = new int[b.length() + 1];
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int rowMin = current[0];
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+        if (i > 1
+            && j > 1
+            && a.charAt(i - 1) == b.charAt(j - 2)
+            && a.charAt(i - 2) == b.charAt(j - 1)) {
+          value = Math.min(value, previous2[j - 2] + 1);
+        }
+        current[j] = value;
+        rowMin = Math.min(rowMin, value);
+      }
+      if (rowMin > limit) {
+        return limit + 1;
+      }
+      int[] recycled = previous2;
+      previous2 = previous;
+      previous = current;
+      current = recycled;
+    }
+    return Math.min(previous[b.length()], limit + 1);
+  }
+}
@@ -0,0 +1,314 @@
+package org.demo.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The PostalCodeIndex class finds the postal code nearest to a coordinate without calling Google.
+ *
+ * <p>The index is a file holding a k-d tree over postal code centroids, built once from a GeoNames
+ * postal code dump with {@link #build(Path, Path)} and memory-mapped when opened, so it costs no
+ * heap and no loading time however many postal codes it holds. Centroids are stored as points on
+ * the unit sphere, which keeps distances correct near the poles and across the date line. The tree
+ * is implicit: the node splitting a range of the file is at its middle, and each half is the
+ * subtree on its side, so nodes hold only their point and where their names are stored.
+ */
+public class PostalCodeIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(PostalCodeIndex.class);
+
+  private static final int MAGIC = 0x50434931; // "PCI1"
+  private static final int HEADER_BYTES = 2 * Integer.BYTES;
+  private static final int NODE_BYTES = 3 * Float.BYTES + Integer.BYTES;
+  private static final double EARTH_RADIUS_KM = 6371.0;
+
+  private static volatile Optional<PostalCodeIndex> fromEnvironment;
+
+  /**
+   * A postal code and the place it belongs to.
+   *
+   * @param country The country name, in English.
+   * @param state The state or first-level administrative area.
+   * @param city The place name.
+   * @param postalCode The postal code.
+   * @param distanceKm The distance from the queried coordinate to the postal code's centroid.
+   */
+  public record Place(
+      String country, String state, String city, String postalCode, double distanceKm) {}
+
+  private final ByteBuffer buffer;
+  private final int size;
+
+  private PostalCodeIndex(ByteBuffer buffer) throws IOException {
+    if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+      throw new IOException("Not a postal code index");
+    }
+    this.buffer = buffer;
+    this.size = buffer.getInt(Integer.BYTES);
+  }
+
+  /**
+   * Opens an index file by mapping it into memory.
+   *
+   * @param file The index file written by {@link #build(Path, Path)}.
+   * @return The index.
+   * @throws IOException If the file cannot be read or is not an index.
+   */
+  public static PostalCodeIndex open(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return new PostalCodeIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Opens the index file named by the POSTAL_CODE_INDEX environment variable, once per process.
+   *
+   * @return The index, or empty if none is configured or it cannot be opened.
+   */
+  public static Optional<PostalCodeIndex> fromEnvironment() {
+    if (fromEnvironment == null) {
+      synchronized (PostalCodeIndex.class) {
+        if (fromEnvironment == null) {
+          fromEnvironment = openFromEnvironment();
+        }
+      }
+    }
+    return fromEnvironment;
+  }
+
+  private static Optional<PostalCodeIndex> openFromEnvironment() {
+    String file = System.getenv("POSTAL_CODE_INDEX");
+    if (file == null || file.isBlank()) {
+      return Optional.empty();
+    }
+    try {
+      PostalCodeIndex index = open(Path.of(file));
+      logger.info("Loaded postal code index {} with {} postal codes", file, index.size());
+      return Optional.of(index);
+    } catch (IOException e) {
+      logger.warn("Cannot open postal code index {}: {}", file, e.getMessage());
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Gets the number of postal codes in the index.
+   *
+   * @return The number of postal codes.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the postal code whose centroid is nearest to a coordinate.
+   *
+   * @param latitude The latitude in degrees.
+   * @param longitude The longitude in degrees.
+   * @return The nearest postal code, or empty if the index is empty.
+   */
+  public Optional<Place> nearest(double latitude, double longitude) {
+    if (size == 0) {
+      return Optional.empty();
+    }
+    double[] query = toUnitVector(latitude, longitude);
+    Nearest best = new Nearest();
+    search(0, size, 0, query, best);
+
+    int names = buffer.getInt(nodeOffset(best.node) + 3 * Float.BYTES);
+    String[] fields = new String[4];
+    for (int i = 0; i < fields.length; i++) {
+      int length = Short.toUnsignedInt(buffer.getShort(names));
+      byte[] bytes = new byte[length];
+      buffer.get(names + Short.BYTES, bytes);
+      fields[i] = new String(bytes, StandardCharsets.UTF_8);
+      names += Short.BYTES + length;
+    }
+    double chord = Math.sqrt(best.squaredDistance);
+    double distanceKm = 2 * Math.asin(Math.min(1, chord / 2)) * EARTH_RADIUS_KM;
+    return Optional.of(new Place(fields[0], fields[1], fields[2], fields[3], distanceKm));
+  }
+
+  /** The closest node found so far by a search. */
+  private static final class Nearest {
+    private int node = -1;
+    private double squaredDistance = Double.POSITIVE_INFINITY;
+  }
+
+  private void search(int lo, int hi, int depth, double[] query, Nearest best) {
+    if (lo >= hi) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    int offset = nodeOffset(mid);
+    double squaredDistance = 0;
+    for (int axis = 0; axis < 3; axis++) {
+      double d = query[axis] - buffer.getFloat(offset + axis * Float.BYTES);
+      squaredDistance += d * d;
+    }
+    if (squaredDistance < best.squaredDistance) {
+      best.node = mid;
+      best.squaredDistance = squaredDistance;
+    }
+
+    int axis = depth % 3;
+    double split = query[axis] - buffer.getFloat(offset + axis * Float.BYTES);
+    if (split < 0) {
+      search(lo, mid, depth + 1, query, best);
+      if (split * split < best.squaredDistance) {
+        search(mid + 1, hi, depth + 1, query, best);
+      }
+    } else {
+      search(mid + 1, hi, depth + 1, query, best);
+      if (split * split < best.squaredDistance) {
+        search(lo, mid, depth + 1, query, best);
+      }
+    }
+  }
+
+  private static int nodeOffset(int node) {
+    return HEADER_BYTES + node * NODE_BYTES;
+  }
+
+  private static double[] toUnitVector(double latitude, double longitude) {
+    double lat = Math.toRadians(latitude);
+    double lng = Math.toRadians(longitude);
+    return new double[] {
+      Math.cos(lat) * Math.cos(lng), Math.cos(lat) * Math.sin(lng), Math.sin(lat)
+    };
+  }
+
+  /**
+   * Builds an index file from a GeoNames postal code dump, a tab-separated file whose columns
+   * include the ISO country code (1), postal code (2), place name (3), first-level administrative
+   * area (4), latitude (10) and longitude (11).
+   *
+   * @param geoNamesFile The GeoNames postal code file, e.g. allCountries.txt.
+   * @param indexFile The index file to write.
+   * @return The number of postal codes indexed.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static int build(Path geoNamesFile, Path indexFile) throws IOException {
+    List<float[]> points = new ArrayList<>();
+    ByteArrayOutputStream names = new ByteArrayOutputStream();
+    List<Integer> nameOffsets = new ArrayList<>();
+    DataOutputStream nameData = new DataOutputStream(names);
+    long skipped = 0;
+
+    try (BufferedReader reader = Files.newBufferedReader(geoNamesFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String[] fields = line.split("\t", -1);
+        double latitude;
+        double longitude;
+        try {
+          latitude = Double.parseDouble(fields[9]);
+          longitude = Double.parseDouble(fields[10]);
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+          skipped++;
+          continue;
+        }
+        double[] point = toUnitVector(latitude, longitude);
+        points.add(new float[] {(float) point[0], (float) point[1], (float) point[2]});
+        nameOffsets.add(names.size());
+        writeName(nameData, Locale.of("", fields[0]).getDisplayCountry(Locale.ENGLISH));
+        writeName(nameData, fields[3]);
+        writeName(nameData, fields[2]);
+        writeName(nameData, fields[1]);
+      }
+    }
+    if (skipped > 0) {
+      logger.warn("Skipped {} malformed lines in {}", skipped, geoNamesFile);
+    }
+
+    int[] order = new int[points.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    arrange(order, points, 0, order.length, 0);
+
+    int namesStart = HEADER_BYTES + order.length * NODE_BYTES;
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(order.length);
+      for (int node : order) {
+        float[] point = points.get(node);
+        out.writeFloat(point[0]);
+        out.writeFloat(point[1]);
+        out.writeFloat(point[2]);
+        out.writeInt(namesStart + nameOffsets.get(node));
+      }
+      names.writeTo(out);
+    }
+    logger.info("Indexed {} postal codes into {}", order.length, indexFile);
+    return order.length;
+  }
+
+  private static void writeName(DataOutputStream out, String name) throws IOException {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+    int length = Math.min(bytes.length, 0xFFFF);
+    out.writeShort(length);
+    out.write(bytes, 0, length);
+  }
+
+  /**
+   * Orders a range of points as an implicit k-d tree: the median along the depth's axis goes to the
+   * middle, the points below it before and the points above it after, each half arranged likewise.
+   */
+  private static void arrange(int[] order, List<float[]> points, int lo, int hi, int depth) {
+    if (hi - lo <= 1) {
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    select(order, points, lo, hi - 1, mid, depth % 3);
+    arrange(order, points, lo, mid, depth + 1);
+    arrange(order, points, mid + 1, hi, depth + 1);
+  }
+
+  /** Moves the k-th smallest point along an axis into position k, with quickselect. */
+  private static void select(int[] order, List<float[]> points, int lo, int hi, int k, int axis) {
+    while (lo < hi) {
+      float pivot = points.get(order[(lo + hi) >>> 1])[axis];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (points.get(order[i])[axis] < pivot) {
+          i++;
+        }
+        while (points.get(order[j])[axis] > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          int swap = order[i];
+          order[i] = order[j];
+          order[j] = swap;
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return;
+      }
+    }
+  }
+}
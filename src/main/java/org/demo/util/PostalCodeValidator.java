@@ -0,0 +1,284 @@
+package org.demo.util;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The PostalCodeValidator class checks postal codes against a compiled table of per-country
+ * formats and known numeric ranges, without any network access.
+ *
+ * <p>Formats are masks over the code with spaces and hyphens removed: '9' matches a digit, 'A'
+ * matches a letter and '?' matches either. A numeric range, where present, applies to codes made up
+ * only of digits (the first five digits for a US ZIP+4 code).
+ */
+public class PostalCodeValidator {
+
+  /** The result of classifying a postal code. */
+  public enum Classification {
+    /** The code matches the country's format, or any known format if the country is unknown. */
+    VALID,
+    /** The code cannot be a postal code of the given country. */
+    INVALID,
+    /** The country is unknown and the code matches none of the known formats. */
+    UNKNOWN
+  }
+
+  private record Format(String isoCode, String[] masks, int min, int max) {}
+
+  private static final Format[] FORMATS = {
+    new Format("IN", masks("999999"), 110000, 999999),
+    new Format("US", masks("99999", "999999999"), 501, 99950),
+    new Format("CA", masks("A9A9A9"), 0, 0),
+    new Format(
+        "GB", masks("A99AA", "A999AA", "AA99AA", "AA999AA", "A9A9AA", "AA9A9AA"), 0, 0),
+    new Format("DE", masks("99999"), 1001, 99998),
+    new Format("FR", masks("99999"), 1000, 98999),
+    new Format("IT", masks("99999"), 10, 98168),
+    new Format("ES", masks("99999"), 1000, 52999),
+    new Format("NL", masks("9999AA"), 0, 0),
+    new Format("CH", masks("9999"), 1000, 9699),
+    new Format("SE", masks("99999"), 10000, 98499),
+    new Format("NO", masks("9999"), 0, 9999),
+    new Format("DK", masks("9999"), 800, 9990),
+    new Format("PL", masks("99999"), 0, 99999),
+    new Format("RU", masks("999999"), 101000, 692999),
+    new Format("AU", masks("9999"), 200, 9999),
+    new Format("NZ", masks("9999"), 110, 9999),
+    new Format("JP", masks("9999999"), 0, 9999999),
+    new Format("CN", masks("999999"), 10000, 869999),
+    new Format("SG", masks("999999"), 18000, 829999),
+    new Format("PH", masks("9999"), 400, 9811),
+    new Format("PK", masks("99999"), 10000, 99999),
+    new Format("BD", masks("9999"), 1000, 9499),
+    new Format("LK", masks("99999"), 0, 99999),
+    new Format("NP", masks("99999"), 10000, 57000),
+    new Format("BR", masks("99999999"), 1000000, 99999999),
+    new Format("MX", masks("99999"), 1000, 99999),
+    new Format("ZA", masks("9999"), 1, 9999),
+  };
+
+  private static final Map<String, Format> FORMATS_BY_COUNTRY = new HashMap<>();
+
+  static {
+    for (Format format : FORMATS) {
+      FORMATS_BY_COUNTRY.put(format.isoCode(), format);
+    }
+    alias("india", "IN");
+    alias("united states", "US");
+    alias("united states of america", "US");
+    alias("usa", "US");
+    alias("canada", "CA");
+    alias("united kingdom", "GB");
+    alias("uk", "GB");
+    alias("great britain", "GB");
+    alias("germany", "DE");
+    alias("france", "FR");
+    alias("italy", "IT");
+    alias("spain", "ES");
+    alias("netherlands", "NL");
+    alias("switzerland", "CH");
+    alias("sweden", "SE");
+    alias("norway", "NO");
+    alias("denmark", "DK");
+    alias("poland", "PL");
+    alias("russia", "RU");
+    alias("australia", "AU");
+    alias("new zealand", "NZ");
+    alias("japan", "JP");
+    alias("china", "CN");
+    alias("singapore", "SG");
+    alias("philippines", "PH");
+    alias("pakistan", "PK");
+    alias("bangladesh", "BD");
+    alias("sri lanka", "LK");
+    alias("nepal", "NP");
+    alias("brazil", "BR");
+    alias("mexico", "MX");
+    alias("south africa", "ZA");
+  }
+
+  private static String[] masks(String... masks) {
+    return masks;
+  }
+
+  private static void alias(String countryName, String isoCode) {
+    FORMATS_BY_COUNTRY.put(countryName.toUpperCase(Locale.ROOT), FORMATS_BY_COUNTRY.get(isoCode));
+  }
+
+  /**
+   * Classifies a postal code for the given country.
+   *
+   * @param country The country name or ISO 3166-1 alpha-2 code, or null if unknown.
+   * @param input The postal code input.
+   * @return The classification of the input.
+   */
+  public static Classification classify(String country, String input) {
+    if (input == null) {
+      return country != null && findFormat(country) != null
+          ? Classification.INVALID
+          : Classification.UNKNOWN;
+    }
+    String code = normalize(input);
+    Format format = country != null ? findFormat(country) : null;
+    if (format != null) {
+      return matches(format, code) ? Classification.VALID : Classification.INVALID;
+    }
+    for (Format candidate : FORMATS) {
+      if (matches(candidate, code)) {
+        return Classification.VALID;
+      }
+    }
+    return Classification.UNKNOWN;
+  }
+
+  /**
+   * Checks whether input is a postal code of the given country or the beginning of one, so that
+   * typing more could still make it valid. For example, "5600" is a prefix of Indian codes and
+   * "SW1A" of British ones, while "0560" can never become an Indian code.
+   *
+   * @param country The country name or ISO 3166-1 alpha-2 code, or null if unknown.
+   * @param input The postal code input.
+   * @return True if the input is a valid code or a prefix of one, or the country's format is not
+   *     known; false if no code of the country starts with the input.
+   */
+  public static boolean isValidPrefix(String country, String input) {
+    Format format = country != null ? findFormat(country) : null;
+    if (format == null) {
+      return true;
+    }
+    String code = normalize(input);
+    for (String mask : format.masks()) {
+      if (code.length() <= mask.length()
+          && matchesMask(mask.substring(0, code.length()), code)
+          && (!isNumeric(code) || prefixInRange(format, code))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Checks whether input could only have been meant as a postal code: it contains a digit, holds
+   * nothing but letters, digits, spaces and hyphens, and has no run of three or more letters, which
+   * no postal code format has. Input such as "Bangalore 560001" mixes in a place name and is not
+   * format-only.
+   *
+   * @param input The input.
+   * @return True if the input is a postal code or a malformed one, false otherwise.
+   */
+  public static boolean isFormatOnly(String input) {
+    boolean hasDigit = false;
+    int letterRun = 0;
+    for (int i = 0; i < input.length(); i++) {
+      char c = input.charAt(i);
+      if (isAsciiLetter(c)) {
+        if (++letterRun > 2) {
+          return false;
+        }
+        continue;
+      }
+      letterRun = 0;
+      if (c >= '0' && c <= '9') {
+        hasDigit = true;
+      } else if (c != ' ' && c != '-') {
+        return false;
+      }
+    }
+    return hasDigit;
+  }
+
+  private static boolean isAsciiLetter(char c) {
+    return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+  }
+
+  /**
+   * Gets the ISO 3166-1 alpha-2 code of a country in the table.
+   *
+   * @param country The country name or ISO 3166-1 alpha-2 code.
+   * @return The lowercase ISO code, or empty if the country is not in the table.
+   */
+  public static Optional<String> getIsoCode(String country) {
+    Format format = country != null ? findFormat(country) : null;
+    return Optional.ofNullable(format).map(f -> f.isoCode().toLowerCase(Locale.ROOT));
+  }
+
+  private static Format findFormat(String country) {
+    return FORMATS_BY_COUNTRY.get(country.trim().toUpperCase(Locale.ROOT));
+  }
+
+  /** Uppercases the input and removes spaces and hyphens. */
+  private static String normalize(String input) {
+    StringBuilder code = new StringBuilder(input.length());
+    for (int i = 0; i < input.length(); i++) {
+      char c = input.charAt(i);
+      if (c != ' ' && c != '-') {
+        code.append(Character.toUpperCase(c));
+      }
+    }
+    return code.toString();
+  }
+
+  private static boolean matches(Format format, String code) {
+    for (String mask : format.masks()) {
+      if (matchesMask(mask, code)) {
+        return !isNumeric(code) || inRange(format, code);
+      }
+    }
+    return false;
+  }
+
+  private static boolean matchesMask(String mask, String code) {
+    if (mask.length() != code.length()) {
+      return false;
+    }
+    for (int i = 0; i < mask.length(); i++) {
+      char c = code.charAt(i);
+      boolean ok =
+          switch (mask.charAt(i)) {
+            case '9' -> c >= '0' && c <= '9';
+            case 'A' -> c >= 'A' && c <= 'Z';
+            case '?' -> (c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z');
+            default -> c == mask.charAt(i);
+          };
+      if (!ok) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isNumeric(String code) {
+    for (int i = 0; i < code.length(); i++) {
+      if (code.charAt(i) < '0' || code.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Checks whether some code starting with the given digits falls in the format's range. */
+  private static boolean prefixInRange(Format format, String code) {
+    if (format.min() == 0 && format.max() == 0) {
+      return true;
+    }
+    int digits = format.masks()[0].length();
+    if (code.length() >= digits) {
+      return inRange(format, code);
+    }
+    long scale = (long) Math.pow(10, digits - code.length());
+    long low = code.isEmpty() ? 0 : Long.parseLong(code) * scale;
+    long high = low + scale - 1;
+    return high >= format.min() && low <= format.max();
+  }
+
+  private static boolean inRange(Format format, String code) {
+    if (format.min() == 0 && format.max() == 0) {
+      return true;
+    }
+    // Ranges cover the digits of the primary format, e.g. the five-digit ZIP of a ZIP+4 code
+    int value = Integer.parseInt(code.substring(0, format.masks()[0].length()));
+    return value >= format.min() && value <= format.max();
+  }
+}
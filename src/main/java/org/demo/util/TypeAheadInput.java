@@ -0,0 +1,410 @@
+package org.demo.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.demo.service.GoogleApiService;
+import org.demo.service.PlaceQueryContext;
+import org.demo.service.RequestClass;
+import org.json.JSONArray;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The TypeAheadInput class reads a line from the terminal one keystroke at a time and shows
+ * autocomplete suggestions below it while the user types.
+ *
+ * <p>Lookups are debounced, so only a pause in typing triggers a request. A request whose prefix
+ * has been superseded by newer keystrokes is cancelled, and its result is never rendered.
+ */
+public class TypeAheadInput implements Closeable {
+
+  private static final Logger logger = LoggerFactory.getLogger(TypeAheadInput.class);
+
+  private static final int MIN_QUERY_LENGTH = 2;
+  private static final int MAX_SUGGESTIONS = 5;
+
+  private static final int ENTER = '\r';
+  private static final int NEWLINE = '\n';
+  private static final int BACKSPACE = 127;
+  private static final int CTRL_H = 8;
+  private static final int CTRL_U = 21;
+  private static final int ESCAPE = 27;
+
+  /**
+   * The line entered by the user.
+   *
+   * @param text The entered text.
+   * @param predictions The predictions already fetched for exactly this text, or null if none.
+   */
+  public record Result(String text, JSONArray predictions) {}
+
+  private final GoogleApiService googleApiService;
+  private final long debounceMillis;
+  private final InputStream in;
+  private final PrintStream out;
+  private final boolean configureTerminal;
+  private final ScheduledExecutorService scheduler;
+  private final ExecutorService executor;
+
+  // Mutable per-line state, guarded by this
+  private String prompt;
+  private String type;
+  private PlaceQueryContext context;
+  private final StringBuilder text = new StringBuilder();
+  private ScheduledFuture<?> pendingLookup;
+  private String inFlightQuery;
+  private CompletableFuture<JSONArray> inFlight;
+  private String resultQuery;
+  private JSONArray result;
+  private int renderedLines;
+  private boolean reading;
+
+  // Read-ahead of the key-reading thread, never touched by lookups
+  private int pushedBack = -1;
+
+  /**
+   * Constructs a new TypeAheadInput reading from standard input.
+   *
+   * @param googleApiService The service used to fetch predictions.
+   * @param debounce How long typing must pause before a lookup is sent.
+   */
+  public TypeAheadInput(GoogleApiService googleApiService, Duration debounce) {
+    this(googleApiService, debounce, System.in, System.out, true);
+  }
+
+  /**
+   * Constructs a new TypeAheadInput reading keystrokes from a stream that delivers them unbuffered,
+   * such as a socket, without configuring a terminal.
+   *
+   * @param googleApiService The service used to fetch predictions.
+   * @param debounce How long typing must pause before a lookup is sent.
+   * @param in The stream of keystrokes.
+   * @param out The stream the line and suggestions are drawn on.
+   */
+  public TypeAheadInput(
+      GoogleApiService googleApiService, Duration debounce, InputStream in, PrintStream out) {
+    this(googleApiService, debounce, in, out, false);
+  }
+
+  private TypeAheadInput(
+      GoogleApiService googleApiService,
+      Duration debounce,
+      InputStream in,
+      PrintStream out,
+      boolean configureTerminal) {
+    this.googleApiService = googleApiService;
+    this.debounceMillis = debounce.toMillis();
+    this.in = in;
+    this.out = out;
+    this.configureTerminal = configureTerminal;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread thread = new Thread(r, "type-ahead-debounce");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.executor = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  /**
+   * Checks whether the process is attached to a terminal that can be switched to unbuffered input.
+   *
+   * @return True if type-ahead input can be used, false otherwise.
+   */
+  public static boolean isSupported() {
+    if (System.console() == null || System.getProperty("os.name").startsWith("Windows")) {
+      return false;
+    }
+    try {
+      return stty("-g") != null;
+    } catch (IOException e) {
+      logger.debug("Terminal does not support stty", e);
+      return false;
+    }
+  }
+
+  /**
+   * Reads one line, showing suggestions for the given prediction type while the user types.
+   *
+   * @param prompt The prompt to display.
+   * @param type The type parameter for the prediction lookups.
+   * @return The entered line and any predictions already fetched for it.
+   * @throws IOException If the terminal cannot be read or configured.
+   */
+  public Result readLine(String prompt, String type) throws IOException {
+    return readLine(prompt, type, PlaceQueryContext.NONE);
+  }
+
+  /**
+   * Reads one line, showing suggestions for the given prediction type narrowed by a query context
+   * while the user types.
+   *
+   * @param prompt The prompt to display.
+   * @param type The type parameter for the prediction lookups.
+   * @param context The country restriction, location bias and session token to send.
+   * @return The entered line and any predictions already fetched for it.
+   * @throws IOException If the terminal cannot be read or configured.
+   */
+  public Result readLine(String prompt, String type, PlaceQueryContext context)
+      throws IOException {
+    String savedSettings = configureTerminal ? stty("-g") : null;
+    if (configureTerminal && savedSettings == null) {
+      throw new IOException("Unable to read the terminal settings");
+    }
+    synchronized (this) {
+      this.prompt = prompt;
+      this.type = type;
+      this.context = context;
+      text.setLength(0);
+      resultQuery = null;
+      result = null;
+      renderedLines = 0;
+      reading = true;
+      render();
+    }
+    if (!configureTerminal) {
+      readKeys();
+      return finish();
+    }
+    try {
+      stty("-icanon -echo min 1");
+      readKeys();
+    } finally {
+      stty(savedSettings);
+    }
+    return finish();
+  }
+
+  /**
+   * Applies keystrokes to the current line until Enter or end of input. Keys are read without
+   * holding the lock, since reading blocks until the user types, and lookups completing meanwhile
+   * must still be able to render.
+   */
+  private void readKeys() throws IOException {
+    while (true) {
+      int b = read();
+      if (b == -1 || b == ENTER || b == NEWLINE) {
+        return;
+      }
+      if (b == ESCAPE) {
+        skipEscapeSequence();
+      } else if (b == BACKSPACE || b == CTRL_H || b == CTRL_U) {
+        edit(b, null);
+      } else if (b >= 0x80) {
+        edit(b, readUtf8(b));
+      } else if (b >= ' ') {
+        edit(b, String.valueOf((char) b));
+      }
+    }
+  }
+
+  /** Applies one keystroke: appends the typed text, or erases if there is none. */
+  private synchronized void edit(int key, String typed) {
+    if (typed != null) {
+      text.append(typed);
+    } else if (key == CTRL_U) {
+      text.setLength(0);
+    } else if (!text.isEmpty()) {
+      text.setLength(text.offsetByCodePoints(text.length(), -1));
+    }
+    render();
+    scheduleLookup();
+  }
+
+  private int read() throws IOException {
+    if (pushedBack != -1) {
+      int b = pushedBack;
+      pushedBack = -1;
+      return b;
+    }
+    return in.read();
+  }
+
+  /**
+   * Skips the remainder of a terminal escape sequence such as an arrow key. A lone Escape is
+   * ignored, and the key typed after it is kept.
+   */
+  private void skipEscapeSequence() throws IOException {
+    int b = in.read();
+    if (b != '[') {
+      pushedBack = b;
+      return;
+    }
+    do {
+      b = in.read();
+    } while (b != -1 && (b < 0x40 || b > 0x7E));
+  }
+
+  private String readUtf8(int lead) throws IOException {
+    int length = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : 2;
+    byte[] bytes = new byte[length];
+    bytes[0] = (byte) lead;
+    for (int i = 1; i < length; i++) {
+      bytes[i] = (byte) in.read();
+    }
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /** Replaces any pending lookup with one for the current text, after the debounce delay. */
+  private synchronized void scheduleLookup() {
+    if (pendingLookup != null) {
+      pendingLookup.cancel(false);
+    }
+    String query = text.toString().trim();
+    if (query.length() < MIN_QUERY_LENGTH) {
+      cancelInFlight();
+      return;
+    }
+    pendingLookup = scheduler.schedule(() -> lookup(query), debounceMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @SuppressWarnings("try")
+  private synchronized void lookup(String query) {
+    if (!query.equals(text.toString().trim())
+        || query.equals(inFlightQuery)
+        || query.equals(resultQuery)) {
+      return;
+    }
+    cancelInFlight();
+    inFlightQuery = query;
+    try (RequestClass.Scope scope = RequestClass.PREFETCH.enter()) {
+      inFlight = googleApiService.getPredictionsAsync(query, type, context, executor);
+    }
+    inFlight.whenComplete((predictions, error) -> onLookupComplete(query, predictions, error));
+  }
+
+  private synchronized void onLookupComplete(String query, JSONArray predictions, Throwable error) {
+    if (!query.equals(inFlightQuery)) {
+      return;
+    }
+    inFlightQuery = null;
+    inFlight = null;
+    if (error != null) {
+      logger.debug("Type-ahead lookup for '{}' failed", query, error);
+      return;
+    }
+    resultQuery = query;
+    result = predictions;
+    if (reading) {
+      render();
+    }
+  }
+
+  private synchronized void cancelInFlight() {
+    if (inFlight != null) {
+      logger.debug("Cancelling superseded type-ahead lookup for '{}'", inFlightQuery);
+      inFlight.cancel(true);
+      inFlight = null;
+      inFlightQuery = null;
+    }
+  }
+
+  /**
+   * Completes the current line. A lookup already in flight for the final text is awaited rather
+   * than repeated; any other pending lookup is cancelled.
+   */
+  private Result finish() {
+    String query;
+    CompletableFuture<JSONArray> awaited = null;
+    synchronized (this) {
+      reading = false;
+      if (pendingLookup != null) {
+        pendingLookup.cancel(false);
+        pendingLookup = null;
+      }
+      query = text.toString().trim();
+      if (query.equals(resultQuery)) {
+        clearSuggestions();
+        return new Result(query, result);
+      }
+      if (query.equals(inFlightQuery)) {
+        awaited = inFlight;
+      } else {
+        cancelInFlight();
+      }
+      clearSuggestions();
+    }
+    if (awaited != null) {
+      try {
+        return new Result(query, awaited.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException | CancellationException e) {
+        logger.debug("Type-ahead lookup for '{}' did not complete", query, e);
+      }
+    }
+    return new Result(query, null);
+  }
+
+  /** Redraws the input line and the suggestions below it, leaving the cursor after the text. */
+  private void render() {
+    StringBuilder screen = new StringBuilder("\r\033[J").append(prompt).append(text);
+    int lines = 0;
+    if (result != null && text.toString().trim().equals(resultQuery)) {
+      for (int i = 0; i < result.length() && i < MAX_SUGGESTIONS; i++) {
+        screen.append("\n  ").append(result.getJSONObject(i).getString("description"));
+        lines++;
+      }
+    }
+    if (lines > 0) {
+      int column = prompt.codePointCount(0, prompt.length()) + text.codePointCount(0, text.length());
+      screen.append("\033[").append(lines).append('A').append('\r');
+      if (column > 0) {
+        screen.append("\033[").append(column).append('C');
+      }
+    }
+    renderedLines = lines;
+    out.print(screen);
+    out.flush();
+  }
+
+  private void clearSuggestions() {
+    if (renderedLines > 0) {
+      out.print("\r\033[J" + prompt + text);
+      renderedLines = 0;
+    }
+    out.println();
+    out.flush();
+  }
+
+  /**
+   * Runs stty against the controlling terminal.
+   *
+   * @param arguments The stty arguments.
+   * @return The output of stty, or null if it failed.
+   * @throws IOException If stty cannot be started.
+   */
+  private static String stty(String arguments) throws IOException {
+    Process process =
+        new ProcessBuilder("sh", "-c", "stty " + arguments + " < /dev/tty")
+            .redirectErrorStream(true)
+            .start();
+    try {
+      String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+      return process.waitFor() == 0 ? output.trim() : null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while configuring the terminal", e);
+    }
+  }
+
+  /** Stops the lookup threads. */
+  @Override
+  public void close() {
+    scheduler.shutdownNow();
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,302 @@
+package demo;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.demo.service.PlaceQueryContext;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A GoogleApiService for tests that answers from a tiny gazetteer around MG Road, Bengaluru instead
+ * of calling Google. It counts the calls and response bytes per endpoint, records the autocomplete
+ * inputs and how many calls ran at once, and can delay every answer to simulate latency.
+ *
+ * <p>Tests that need other answers override {@link #predictions}, {@link #geocode} or {@link
+ * #geolocate}; the bookkeeping stays the same. The inputs "nowhere" and "bad" have no predictions
+ * and fail with INVALID_REQUEST respectively.
+ */
+public class FakeGoogleApiService extends GoogleApiService {
+
+  private final Map<GoogleEndpoint, AtomicInteger> calls = new EnumMap<>(GoogleEndpoint.class);
+  private final Map<GoogleEndpoint, AtomicLong> responseBytes =
+      new EnumMap<>(GoogleEndpoint.class);
+  private final List<String> queries = Collections.synchronizedList(new ArrayList<>());
+  private final AtomicInteger running = new AtomicInteger();
+  private final AtomicInteger maxRunning = new AtomicInteger();
+  private final AtomicInteger cancelled = new AtomicInteger();
+  private volatile Duration latency = Duration.ZERO;
+
+  /** An answer that may fail like a Google API call. */
+  @FunctionalInterface
+  private interface Answer {
+    JSONObject get() throws GoogleApiException;
+  }
+
+  /** Constructs a new FakeGoogleApiService that answers immediately. */
+  public FakeGoogleApiService() {
+    super("test");
+    for (GoogleEndpoint endpoint : GoogleEndpoint.values()) {
+      calls.put(endpoint, new AtomicInteger());
+      responseBytes.put(endpoint, new AtomicLong());
+    }
+  }
+
+  /**
+   * Makes every answer take the given time. A call interrupted while waiting counts as cancelled.
+   *
+   * @param latency The simulated round-trip latency.
+   * @return This service.
+   */
+  public FakeGoogleApiService withLatency(Duration latency) {
+    this.latency = latency;
+    return this;
+  }
+
+  @Override
+  public JSONArray getPredictions(String input, String type, PlaceQueryContext context)
+      throws IOException, GoogleApiException {
+    queries.add(input);
+    return respond(
+            GoogleEndpoint.AUTOCOMPLETE,
+            () ->
+                new JSONObject()
+                    .put("status", "OK")
+                    .put("predictions", predictions(input, type, context)))
+        .getJSONArray("predictions");
+  }
+
+  /**
+   * Answers on the executor like {@link #getPredictions(String, String, PlaceQueryContext)}.
+   * Cancelling the returned future interrupts the call, as aborting the HTTP request would; this
+   * assumes the executor runs each task on a thread of its own.
+   */
+  @Override
+  public CompletableFuture<JSONArray> getPredictionsAsync(
+      String input, String type, PlaceQueryContext context, Executor executor) {
+    CompletableFuture<JSONArray> future = new CompletableFuture<>();
+    AtomicReference<Thread> worker = new AtomicReference<>();
+    future.whenComplete(
+        (predictions, error) -> {
+          Thread thread = worker.getAndSet(null);
+          if (future.isCancelled() && thread != null) {
+            thread.interrupt();
+          }
+        });
+    executor.execute(
+        () -> {
+          worker.set(Thread.currentThread());
+          if (future.isDone()) {
+            return;
+          }
+          try {
+            future.complete(getPredictions(input, type, context));
+          } catch (Exception e) {
+            future.completeExceptionally(e);
+          } finally {
+            worker.set(null);
+          }
+        });
+    return future;
+  }
+
+  @Override
+  public JSONObject getGeolocation() throws IOException {
+    try {
+      return respond(GoogleEndpoint.GEOLOCATION, this::geolocate);
+    } catch (GoogleApiException e) {
+      throw new IOException(e);
+    }
+  }
+
+  @Override
+  public JSONObject getGeocodingData(double latitude, double longitude)
+      throws IOException, GoogleApiException {
+    return respond(GoogleEndpoint.GEOCODING, () -> geocode(latitude, longitude));
+  }
+
+  /**
+   * Answers an autocomplete query.
+   *
+   * @param input The user's input.
+   * @param type The type parameter of the query.
+   * @param context The query context.
+   * @return The predictions.
+   * @throws GoogleApiException If the input is "bad".
+   */
+  protected JSONArray predictions(String input, String type, PlaceQueryContext context)
+      throws GoogleApiException {
+    if (input.equals("bad")) {
+      throw new GoogleApiException("INVALID_REQUEST", "Invalid request sent to Google API.");
+    }
+    if (input.equals("nowhere")) {
+      return new JSONArray();
+    }
+    JSONObject prediction =
+        switch (type) {
+          case "country" -> prediction("India", "India");
+          case "administrative_area_level_1" -> prediction("Karnataka", "Karnataka", "India");
+          case "locality" -> prediction("Bengaluru", "Bengaluru", "Karnataka", "India");
+          case "postal_code" -> prediction("560001", "560001", "Bengaluru", "Karnataka", "India");
+          default -> prediction("MG Road", "MG Road", "Bengaluru", "Karnataka", "India");
+        };
+    return new JSONArray().put(prediction);
+  }
+
+  /**
+   * Answers a reverse geocoding request.
+   *
+   * @param latitude The latitude.
+   * @param longitude The longitude.
+   * @return The Geocoding API response.
+   * @throws GoogleApiException If the request should fail.
+   */
+  protected JSONObject geocode(double latitude, double longitude) throws GoogleApiException {
+    return geocodingResponse(
+        component("MG Road", "route"),
+        component("Bengaluru", "locality"),
+        component("Karnataka", "administrative_area_level_1"),
+        component("India", "country"),
+        component("560001", "postal_code"));
+  }
+
+  /**
+   * Answers a geolocation request.
+   *
+   * @return The Geolocation API response.
+   */
+  protected JSONObject geolocate() {
+    return new JSONObject()
+        .put("location", new JSONObject().put("lat", 12.9716).put("lng", 77.5946))
+        .put("accuracy", 20);
+  }
+
+  private JSONObject respond(GoogleEndpoint endpoint, Answer answer)
+      throws InterruptedIOException, GoogleApiException {
+    calls.get(endpoint).incrementAndGet();
+    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+    try {
+      if (!latency.isZero()) {
+        Thread.sleep(latency);
+      }
+      JSONObject response = answer.get();
+      responseBytes
+          .get(endpoint)
+          .addAndGet(response.toString().getBytes(StandardCharsets.UTF_8).length);
+      return response;
+    } catch (InterruptedException e) {
+      cancelled.incrementAndGet();
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Cancelled " + endpoint + " call");
+    } finally {
+      running.decrementAndGet();
+    }
+  }
+
+  /**
+   * Gets the number of calls made to an endpoint.
+   *
+   * @param endpoint The endpoint.
+   * @return The number of calls, including failed and cancelled ones.
+   */
+  public int getCalls(GoogleEndpoint endpoint) {
+    return calls.get(endpoint).get();
+  }
+
+  /**
+   * Gets the number of UTF-8 bytes answered by an endpoint.
+   *
+   * @param endpoint The endpoint.
+   * @return The total size of the responses.
+   */
+  public long getResponseBytes(GoogleEndpoint endpoint) {
+    return responseBytes.get(endpoint).get();
+  }
+
+  /**
+   * Gets the inputs of the autocomplete queries made so far.
+   *
+   * @return The inputs, in the order the queries were made.
+   */
+  public List<String> getQueries() {
+    synchronized (queries) {
+      return List.copyOf(queries);
+    }
+  }
+
+  /**
+   * Gets the highest number of calls answered at once.
+   *
+   * @return The peak concurrency.
+   */
+  public int getMaxRunning() {
+    return maxRunning.get();
+  }
+
+  /**
+   * Gets the number of calls interrupted while waiting for their simulated latency.
+   *
+   * @return The number of cancelled calls.
+   */
+  public int getCancelled() {
+    return cancelled.get();
+  }
+
+  /**
+   * Builds an autocomplete prediction whose description joins its terms.
+   *
+   * @param mainText The main text of the structured formatting.
+   * @param terms The terms, most specific first.
+   * @return The prediction.
+   */
+  public static JSONObject prediction(String mainText, String... terms) {
+    JSONArray termArray = new JSONArray();
+    for (String term : terms) {
+      termArray.put(new JSONObject().put("value", term));
+    }
+    return new JSONObject()
+        .put("description", String.join(", ", terms))
+        .put("structured_formatting", new JSONObject().put("main_text", mainText))
+        .put("terms", termArray);
+  }
+
+  /**
+   * Builds an address component of a geocoding result.
+   *
+   * @param name The long name.
+   * @param type The component type.
+   * @return The address component.
+   */
+  public static JSONObject component(String name, String type) {
+    return new JSONObject().put("long_name", name).put("types", new JSONArray().put(type));
+  }
+
+  /**
+   * Builds a Geocoding API response with one result.
+   *
+   * @param components The address components of the result.
+   * @return The response.
+   */
+  public static JSONObject geocodingResponse(JSONObject... components) {
+    return new JSONObject()
+        .put("status", "OK")
+        .put(
+            "results",
+            new JSONArray()
+                .put(new JSONObject().put("address_components", new JSONArray(components))));
+  }
+}
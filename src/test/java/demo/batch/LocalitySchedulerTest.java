@@ -0,0 +1,56 @@
+package demo.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.demo.batch.LocalityScheduler;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the LocalityScheduler class.
+ */
+public class LocalitySchedulerTest {
+
+  private static LocalityScheduler<String> byFirstLetter(int capacity) {
+    return new LocalityScheduler<>(item -> item.substring(0, 1), capacity);
+  }
+
+  @Test
+  public void testAdd_holdsItemsUntilBufferIsFull() {
+    LocalityScheduler<String> scheduler = byFirstLetter(3);
+
+    assertEquals(List.of(), scheduler.add("a1"));
+    assertEquals(List.of(), scheduler.add("b1"));
+    assertEquals(2, scheduler.size());
+  }
+
+  @Test
+  public void testAdd_releasesBucketOfOldestItem() {
+    LocalityScheduler<String> scheduler = byFirstLetter(4);
+    scheduler.add("a1");
+    scheduler.add("b1");
+    scheduler.add("a2");
+
+    assertEquals(List.of("a1", "a2", "a3"), scheduler.add("a3"));
+    assertEquals(List.of("b1"), scheduler.drain());
+    assertEquals(0, scheduler.size());
+  }
+
+  @Test
+  public void testAdd_noItemWaitsLongerThanCapacity() {
+    LocalityScheduler<String> scheduler = byFirstLetter(4);
+    List<String> released = new ArrayList<>();
+
+    for (int i = 0; i < 40; i++) {
+      released.addAll(scheduler.add("abc".charAt(i % 7 % 3) + String.valueOf(i)));
+      assertTrue(scheduler.size() < 4);
+      for (int j = 0; j <= i - 3; j++) {
+        assertTrue(released.contains("abc".charAt(j % 7 % 3) + String.valueOf(j)));
+      }
+    }
+    released.addAll(scheduler.drain());
+
+    assertEquals(40, released.size());
+  }
+}
@@ -0,0 +1,270 @@
+package demo.batch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.demo.batch.IngestCheckpoint;
+import org.demo.batch.ReverseGeocodeIngest;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the ReverseGeocodeIngest class.
+ */
+public class ReverseGeocodeIngestTest {
+
+  /**
+   * A fake that names the city after the latitude and rejects negative latitudes. It can also shed
+   * a number of calls first, as a busy GoogleApiService sheds bulk requests.
+   */
+  private static class GeocodingService extends FakeGoogleApiService {
+    private final AtomicInteger callsToShed = new AtomicInteger();
+
+    GeocodingService shedFirst(int calls) {
+      callsToShed.set(calls);
+      return this;
+    }
+
+    @Override
+    protected JSONObject geocode(double latitude, double longitude) throws GoogleApiException {
+      if (callsToShed.getAndDecrement() > 0) {
+        throw new GoogleApiException(GoogleApiService.LOAD_SHED_STATUS, "Too busy");
+      }
+      if (latitude < 0) {
+        throw new GoogleApiException("INVALID_REQUEST", "Invalid request sent to Google API.");
+      }
+      return geocodingResponse(
+          component("City " + latitude, "locality"), component("India", "country"));
+    }
+
+    int calls() {
+      return getCalls(GoogleEndpoint.GEOCODING);
+    }
+  }
+
+  private static String[] run(GeocodingService service, String input) throws IOException {
+    return run(new ReverseGeocodeIngest(service, 4, 2), input);
+  }
+
+  private static String[] run(ReverseGeocodeIngest ingest, String input) throws IOException {
+    StringWriter output = new StringWriter();
+    ingest.run(new BufferedReader(new StringReader(input)), output);
+    return output.toString().split(System.lineSeparator());
+  }
+
+  @Test
+  public void testRun_writesRecordsInInputOrder() throws IOException {
+    GeocodingService service = new GeocodingService();
+    String[] lines = run(service, "id,lat,lng\na,10.0,20.0\nb,11.0,20.0\nc,12.0,20.0\n");
+
+    assertEquals(3, lines.length);
+    assertEquals("a", new JSONObject(lines[0]).getString("id"));
+    assertEquals("City 10.0", new JSONObject(lines[0]).getString("city"));
+    assertEquals("b", new JSONObject(lines[1]).getString("id"));
+    assertEquals("c", new JSONObject(lines[2]).getString("id"));
+    assertEquals("India", new JSONObject(lines[2]).getString("country"));
+  }
+
+  @Test
+  public void testRun_collapsesNearbyPoints() throws IOException {
+    GeocodingService service = new GeocodingService();
+    String[] lines = run(service, "a,10.001,20.001\nb,10.002,20.002\nc,10.5,20.5\n");
+
+    assertEquals(3, lines.length);
+    assertEquals(2, service.calls());
+    assertEquals(
+        new JSONObject(lines[0]).getString("city"), new JSONObject(lines[1]).getString("city"));
+  }
+
+  @Test
+  public void testRun_reportsFailedRecords() throws IOException {
+    GeocodingService service = new GeocodingService();
+    String[] lines = run(service, "a,-10.0,20.0\nb,10.0,20.0\n");
+
+    assertTrue(new JSONObject(lines[0]).has("error"));
+    assertFalse(new JSONObject(lines[1]).has("error"));
+  }
+
+  @Test
+  public void testRun_retriesShedLookups() throws IOException {
+    GeocodingService service = new GeocodingService().shedFirst(2);
+    String[] lines = run(service, "a,10.0,20.0\n");
+
+    assertEquals("City 10.0", new JSONObject(lines[0]).getString("city"));
+    assertEquals(3, service.calls());
+  }
+
+  @Test
+  public void testRunFiles_doesNotCheckpointPastShedRecords(@TempDir Path dir)
+      throws IOException {
+    Path input = dir.resolve("points.csv");
+    Files.writeString(input, "a,10.0,20.0\n");
+    Path output = dir.resolve("addresses.jsonl");
+
+    GeocodingService busy = new GeocodingService().shedFirst(Integer.MAX_VALUE);
+    assertThrows(
+        IOException.class, () -> new ReverseGeocodeIngest(busy, 4, 2).run(input, output, false));
+    assertEquals(
+        IngestCheckpoint.START, IngestCheckpoint.load(IngestCheckpoint.fileFor(output)).get());
+
+    new ReverseGeocodeIngest(new GeocodingService(), 4, 2).run(input, output, true);
+    JSONObject line = new JSONObject(Files.readString(output).trim());
+    assertEquals("City 10.0", line.getString("city"));
+  }
+
+  @Test
+  public void testRun_failsWithoutWaitingForLookupsInFlight() {
+    GeocodingService service =
+        new GeocodingService() {
+          @Override
+          protected JSONObject geocode(double latitude, double longitude)
+              throws GoogleApiException {
+            if (latitude == 10.0) {
+              throw new GoogleApiException(GoogleApiService.LOAD_SHED_STATUS, "Too busy");
+            }
+            try {
+              Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+              throw new GoogleApiException("UNKNOWN_ERROR", "Interrupted");
+            }
+            return super.geocode(latitude, longitude);
+          }
+        };
+    long start = System.nanoTime();
+
+    assertThrows(
+        IOException.class, () -> run(service, "a,10.0,20.0\nb,11.0,20.0\nc,12.0,20.0\n"));
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(elapsedMillis < 10_000, "Took " + elapsedMillis + " ms to fail");
+  }
+
+  @Test
+  public void testRun_keepsInputOrderWhileSharingCellLookups() throws IOException {
+    GeocodingService service = new GeocodingService();
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      double latitude = i % 2 == 0 ? 10.0 + (i % 50) / 100.0 : 40.0 + (i % 50) / 100.0;
+      input.append(i).append(',').append(latitude).append(",20.0\n");
+    }
+
+    String[] lines = run(service, input.toString());
+
+    assertEquals(2000, lines.length);
+    for (int i = 0; i < 2000; i++) {
+      assertEquals(String.valueOf(i), new JSONObject(lines[i]).getString("id"));
+    }
+    assertEquals(50, service.calls());
+  }
+
+  @Test
+  public void testRun_groupsRecordsByAreaBeyondTheCellCache() throws IOException {
+    // 30 areas of two cells each, interleaved so a cell comes back only after 59 others
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      double latitude = 10.0 + i % 30 + (i / 30) % 2 / 100.0;
+      input.append(i).append(',').append(latitude).append(",20.0\n");
+    }
+    GeocodingService inOrder = new GeocodingService();
+    GeocodingService grouped = new GeocodingService();
+
+    String[] expected = run(new ReverseGeocodeIngest(inOrder, 4, 2, 20, 0), input.toString());
+    String[] lines = run(new ReverseGeocodeIngest(grouped, 4, 2, 20, 1000), input.toString());
+
+    assertArrayEquals(expected, lines);
+    for (int i = 0; i < 3000; i++) {
+      assertEquals(String.valueOf(i), new JSONObject(lines[i]).getString("id"));
+    }
+    assertTrue(inOrder.calls() > 2000, inOrder.calls() + " calls in input order");
+    assertTrue(grouped.calls() < 300, grouped.calls() + " calls grouped by area");
+  }
+
+  @Test
+  public void testRunFiles_resumesAfterLastCheckpoint(@TempDir Path dir) throws IOException {
+    String header = "id,lat,lng\n";
+    String done = "a,10.0,20.0\nb,11.0,20.0\n";
+    Path input = dir.resolve("points.csv");
+    Files.writeString(input, header + done + "c,12.0,20.0\nd,13.0,20.0\n");
+    Path expected = dir.resolve("expected.jsonl");
+    new ReverseGeocodeIngest(new GeocodingService(), 4, 2).run(input, expected, false);
+    String expectedOutput = Files.readString(expected);
+
+    // Simulate a run that checkpointed after two records and died while writing the third
+    Path output = dir.resolve("addresses.jsonl");
+    String[] expectedLines = expectedOutput.split(System.lineSeparator());
+    String written = expectedLines[0] + System.lineSeparator() + expectedLines[1];
+    written += System.lineSeparator();
+    Files.writeString(output, written + "{\"id\":\"c\",");
+    new IngestCheckpoint(
+            (header + done).getBytes(StandardCharsets.UTF_8).length,
+            3,
+            written.getBytes(StandardCharsets.UTF_8).length,
+            2,
+            0)
+        .save(IngestCheckpoint.fileFor(output));
+
+    GeocodingService service = new GeocodingService();
+    ReverseGeocodeIngest.Summary summary =
+        new ReverseGeocodeIngest(service, 4, 2).run(input, output, true);
+
+    assertEquals(2, service.calls());
+    assertEquals(2, summary.records());
+    assertEquals(expectedOutput, Files.readString(output));
+    assertEquals(4, IngestCheckpoint.load(IngestCheckpoint.fileFor(output)).get().records());
+  }
+
+  @Test
+  public void testRunFiles_resumesFreshRunThatCrashed(@TempDir Path dir) throws IOException {
+    Path input = dir.resolve("points.csv");
+    Path output = dir.resolve("addresses.jsonl");
+    Files.writeString(input, "a,10.0,20.0\nb,11.0,20.0\n");
+    new ReverseGeocodeIngest(new GeocodingService(), 4, 2).run(input, output, false);
+
+    // A fresh run over new input dies before its first checkpoint
+    Files.writeString(input, "c,12.0,20.0\nd,13.0,20.0\ne,14.0,20.0\n");
+    GeocodingService busy = new GeocodingService().shedFirst(Integer.MAX_VALUE);
+    assertThrows(
+        IOException.class, () -> new ReverseGeocodeIngest(busy, 4, 2).run(input, output, false));
+    assertEquals(
+        IngestCheckpoint.START, IngestCheckpoint.load(IngestCheckpoint.fileFor(output)).get());
+
+    GeocodingService service = new GeocodingService();
+    new ReverseGeocodeIngest(service, 4, 2).run(input, output, true);
+
+    String[] lines = Files.readString(output).split(System.lineSeparator());
+    assertEquals(3, lines.length);
+    assertEquals("c", new JSONObject(lines[0]).getString("id"));
+    assertEquals("e", new JSONObject(lines[2]).getString("id"));
+    assertEquals(3, service.calls());
+  }
+
+  @Test
+  public void testRunFiles_resumeReadsOnlyNewInput(@TempDir Path dir) throws IOException {
+    Path input = dir.resolve("points.csv");
+    Files.writeString(input, "a,10.0,20.0\nb,11.0,20.0\n");
+    Path output = dir.resolve("addresses.jsonl");
+    new ReverseGeocodeIngest(new GeocodingService(), 4, 2).run(input, output, false);
+    String firstOutput = Files.readString(output);
+    Files.writeString(input, "c,12.0,20.0\n", StandardOpenOption.APPEND);
+
+    GeocodingService service = new GeocodingService();
+    new ReverseGeocodeIngest(service, 4, 2).run(input, output, true);
+
+    assertEquals(1, service.calls());
+    assertTrue(Files.readString(output).startsWith(firstOutput));
+    assertEquals(3, Files.readString(output).split(System.lineSeparator()).length);
+  }
+}
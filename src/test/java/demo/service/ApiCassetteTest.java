@@ -0,0 +1,60 @@
+package demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.demo.service.ApiCassette;
+import org.demo.service.ApiExchange;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the ApiCassette class.
+ */
+public class ApiCassetteTest {
+
+  @TempDir Path tempDir;
+
+  @Test
+  public void testRecordAndReplay() throws IOException {
+    Path file = tempDir.resolve("cassette.jsonl");
+    try (ApiCassette cassette = ApiCassette.record(file)) {
+      cassette.record(new ApiExchange("GET /a", 200, "{\"status\":\"OK\"}", 42));
+    }
+
+    try (ApiCassette cassette = ApiCassette.replay(file, false)) {
+      ApiExchange exchange = cassette.replay("GET /a");
+      assertEquals(200, exchange.statusCode());
+      assertEquals("{\"status\":\"OK\"}", exchange.body());
+      assertEquals(42, exchange.latencyMillis());
+    }
+  }
+
+  @Test
+  public void testReplay_returnsExchangesInRecordedOrderThenRepeatsLast() throws IOException {
+    Path file = tempDir.resolve("cassette.jsonl.gz");
+    try (ApiCassette cassette = ApiCassette.record(file)) {
+      cassette.record(new ApiExchange("GET /a", 200, "first", 1));
+      cassette.record(new ApiExchange("GET /a", 200, "second", 1));
+    }
+
+    try (ApiCassette cassette = ApiCassette.replay(file, false)) {
+      assertEquals("first", cassette.replay("GET /a").body());
+      assertEquals("second", cassette.replay("GET /a").body());
+      assertEquals("second", cassette.replay("GET /a").body());
+    }
+  }
+
+  @Test
+  public void testReplay_withUnknownKey() throws IOException {
+    Path file = tempDir.resolve("cassette.jsonl");
+    try (ApiCassette cassette = ApiCassette.record(file)) {
+      cassette.record(new ApiExchange("GET /a", 200, "body", 1));
+    }
+
+    try (ApiCassette cassette = ApiCassette.replay(file, false)) {
+      assertThrows(IOException.class, () -> cassette.replay("GET /b"));
+    }
+  }
+}
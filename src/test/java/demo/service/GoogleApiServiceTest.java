@@ -0,0 +1,265 @@
+package demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.ApiExchange;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.demo.trace.ApiCallEvent;
+import org.demo.trace.ParseEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the GoogleApiService class.
+ */
+public class GoogleApiServiceTest {
+
+  private static final String PLACES_BODY = "{\"status\":\"OK\",\"predictions\":[]}";
+  private static final String GEOLOCATION_BODY =
+      "{\"location\":{\"lat\":12.9716,\"lng\":77.5946},\"accuracy\":20}";
+
+  /** The number of samples GoogleApiService needs before it hedges. */
+  private static final int HEDGE_SAMPLES = 20;
+
+  /**
+   * A service whose transport answers at once with a scripted status and reported latency, except
+   * for requests marked slow, which wait until they are cancelled or their time is up.
+   */
+  private static class ScriptedGoogleApiService extends GoogleApiService {
+    private final List<String> sentMethods = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> sentAtNanos = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger slowRequests = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private volatile Duration slowFor = Duration.ZERO;
+    private volatile int statusCode = 200;
+    private volatile long reportedLatencyMillis;
+    private volatile String placesBody = PLACES_BODY;
+
+    ScriptedGoogleApiService() {
+      this(GoogleApiService.DEFAULT_MAX_CONNECTIONS);
+    }
+
+    ScriptedGoogleApiService(int maxConnections) {
+      super("test", null, maxConnections);
+    }
+
+    /** Makes the next request wait until it is cancelled or the given time has passed. */
+    void slowDownNextRequest(Duration duration) {
+      slowFor = duration;
+      slowRequests.set(1);
+    }
+
+    /** Makes every request take the given time, unless it is cancelled. */
+    void slowDownAllRequests(Duration duration) {
+      slowFor = duration;
+      slowRequests.set(-1);
+    }
+
+    @Override
+    protected ApiExchange transmit(HttpUriRequestBase request, String key) throws IOException {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        return respond(request, key);
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    private ApiExchange respond(HttpUriRequestBase request, String key) throws IOException {
+      sentMethods.add(request.getMethod());
+      sentAtNanos.add(System.nanoTime());
+      if (slowRequests.getAndUpdate(n -> n > 0 ? n - 1 : n) != 0) {
+        long deadline = System.nanoTime() + slowFor.toNanos();
+        try {
+          while (!request.isCancelled() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        if (request.isCancelled()) {
+          cancelled.incrementAndGet();
+          throw new InterruptedIOException("Request cancelled");
+        }
+      }
+      String body;
+      if (statusCode != 200) {
+        body = "<html>Service Unavailable</html>";
+      } else if (request.getMethod().equals("POST")) {
+        body = GEOLOCATION_BODY;
+      } else {
+        body = placesBody;
+      }
+      return new ApiExchange(key, statusCode, body, reportedLatencyMillis);
+    }
+  }
+
+  private final ScriptedGoogleApiService service = new ScriptedGoogleApiService();
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    service.close();
+  }
+
+  private void primeAutocompleteLatency(long latencyMillis) throws Exception {
+    service.reportedLatencyMillis = latencyMillis;
+    for (int i = 0; i < HEDGE_SAMPLES; i++) {
+      service.getPredictions("prime " + i, "address");
+    }
+    service.sentMethods.clear();
+    service.sentAtNanos.clear();
+  }
+
+  private void awaitCancelled(int expected) throws InterruptedException {
+    for (int i = 0; i < 200 && service.cancelled.get() < expected; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, service.cancelled.get());
+  }
+
+  @Test
+  public void testHedge_firesAfterTrackedPercentileAndCancelsLoser() throws Exception {
+    primeAutocompleteLatency(200);
+    service.slowDownNextRequest(Duration.ofSeconds(10));
+
+    long start = System.nanoTime();
+    service.getPredictions("slow", "address");
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertEquals(2, service.sentMethods.size());
+    long hedgeDelayMillis =
+        TimeUnit.NANOSECONDS.toMillis(service.sentAtNanos.get(1) - service.sentAtNanos.get(0));
+    // The duplicate waits for the tracked p95 of 200 ms, not the 50 ms floor
+    assertTrue(hedgeDelayMillis >= 200, "Hedged after " + hedgeDelayMillis + " ms");
+    assertTrue(elapsedMillis < 5_000, "Waited " + elapsedMillis + " ms for the slow request");
+    awaitCancelled(1);
+  }
+
+  @Test
+  public void testHedge_needsEnoughSamples() throws Exception {
+    service.slowDownNextRequest(Duration.ofMillis(300));
+
+    service.getPredictions("slow", "address");
+
+    assertEquals(1, service.sentMethods.size());
+    assertEquals(0, service.cancelled.get());
+  }
+
+  @Test
+  public void testHedge_neverDuplicatesPost() throws Exception {
+    service.reportedLatencyMillis = 50;
+    for (int i = 0; i < HEDGE_SAMPLES; i++) {
+      service.getGeolocation();
+    }
+    service.sentMethods.clear();
+    service.slowDownNextRequest(Duration.ofMillis(400));
+
+    service.getGeolocation();
+
+    assertEquals(List.of("POST"), service.sentMethods);
+    assertEquals(0, service.cancelled.get());
+  }
+
+  @Test
+  public void testServerErrors_openTheCircuitBreaker() {
+    service.statusCode = 503;
+    for (int i = 0; i < 10; i++) {
+      GoogleApiException e =
+          assertThrows(
+              GoogleApiException.class, () -> service.getPredictions("query", "address"));
+      assertEquals("UNKNOWN_ERROR", e.getStatusCode());
+    }
+
+    GoogleApiException e =
+        assertThrows(GoogleApiException.class, () -> service.getPredictions("query", "address"));
+    assertEquals(GoogleApiService.CIRCUIT_OPEN_STATUS, e.getStatusCode());
+    assertEquals(10, service.sentMethods.size());
+  }
+
+  @Test
+  public void testThrottling_isReportedAndNotCached() throws Exception {
+    service.statusCode = 429;
+    GoogleApiException e =
+        assertThrows(GoogleApiException.class, () -> service.getPredictions("query", "address"));
+    assertEquals("OVER_QUERY_LIMIT", e.getStatusCode());
+
+    service.statusCode = 200;
+    assertEquals(0, service.getPredictions("query", "address").length());
+    assertEquals(2, service.sentMethods.size());
+  }
+
+  @Test
+  public void testConcurrencyLimit_startsAtPoolSize() {
+    assertEquals(
+        GoogleApiService.DEFAULT_MAX_CONNECTIONS,
+        service.getConcurrencyLimit(GoogleEndpoint.AUTOCOMPLETE));
+  }
+
+  @Test
+  public void testConcurrencyLimit_isSharedByEndpointsOnOneHost() throws Exception {
+    try (ScriptedGoogleApiService pooled = new ScriptedGoogleApiService(2)) {
+      pooled.slowDownAllRequests(Duration.ofMillis(50));
+      try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+        for (int i = 0; i < 6; i++) {
+          String input = "query " + i;
+          double latitude = i;
+          executor.submit(() -> pooled.getPredictions(input, "address"));
+          executor.submit(() -> pooled.getGeocodingData(latitude, 0));
+        }
+      }
+
+      assertEquals(12, pooled.sentMethods.size());
+      // Autocomplete and geocoding share the two maps.googleapis.com connections
+      assertEquals(2, pooled.maxRunning.get());
+    }
+  }
+
+  @Test
+  public void testEvents_measureBodiesInUtf8Bytes(@TempDir Path dir) throws Exception {
+    // "ಬೆಂಗಳೂರು" is 8 chars but 24 bytes in UTF-8
+    service.placesBody =
+        "{\"status\":\"OK\",\"predictions\":[{\"description\":\"ಬೆಂಗಳೂರು\"}]}";
+    long expectedBytes = service.placesBody.getBytes(StandardCharsets.UTF_8).length;
+    Path traceFile = dir.resolve("trace.jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable(ApiCallEvent.class);
+      recording.enable(ParseEvent.class);
+      recording.start();
+      service.getPredictions("Bengaluru", "address");
+      recording.stop();
+      recording.dump(traceFile);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(traceFile);
+    assertEquals(expectedBytes, findEvent(events, "org.demo.ApiCall").getLong("responseBytes"));
+    assertEquals(expectedBytes, findEvent(events, "org.demo.Parse").getLong("inputBytes"));
+  }
+
+  private static RecordedEvent findEvent(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(event -> event.getEventType().getName().equals(name))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+  }
+}
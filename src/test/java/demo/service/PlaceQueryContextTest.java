@@ -0,0 +1,86 @@
+package demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.demo.exception.GoogleApiException;
+import org.demo.model.LocationInfo;
+import org.demo.service.ApiCassette;
+import org.demo.service.ApiExchange;
+import org.demo.service.GoogleApiService;
+import org.demo.service.PlaceQueryContext;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the PlaceQueryContext class.
+ */
+public class PlaceQueryContextTest {
+
+  private static final String AUTOCOMPLETE =
+      "https://maps.googleapis.com/maps/api/place/autocomplete/json";
+
+  @TempDir Path tempDir;
+
+  @Test
+  public void testOf_restrictsToKnownCountry() {
+    LocationInfo locationInfo = new LocationInfo();
+    locationInfo.setCountry("India");
+
+    PlaceQueryContext context = PlaceQueryContext.of(locationInfo, null, "token");
+
+    assertEquals("in", context.countryCode());
+    assertEquals("token", context.sessionToken());
+    assertNull(context.withoutCountry().countryCode());
+    assertEquals("token", context.withoutCountry().sessionToken());
+  }
+
+  @Test
+  public void testOf_withoutCountry() {
+    PlaceQueryContext context = PlaceQueryContext.of(new LocationInfo(), null, null);
+
+    assertEquals(PlaceQueryContext.NONE, context);
+  }
+
+  @Test
+  public void testLocationBias_isSnappedToCoarseGrid() {
+    PlaceQueryContext.LocationBias bias =
+        new PlaceQueryContext.LocationBias(12.9716, 77.5946, 50_000);
+
+    assertEquals(13.0, bias.latitude());
+    assertEquals(77.6, bias.longitude());
+    // Users a few kilometers apart share one bias, and so one cache key
+    assertEquals(bias, new PlaceQueryContext.LocationBias(12.9833, 77.6012, 50_000));
+    assertEquals(0.0, new PlaceQueryContext.LocationBias(0.00001, -0.00004, 1).longitude());
+  }
+
+  @Test
+  public void testGetPredictions_sendsContextButKeysWithoutSessionToken()
+      throws IOException, GoogleApiException {
+    Path file = tempDir.resolve("cassette.jsonl");
+    String body = "{\"status\":\"OK\",\"predictions\":[{\"description\":\"Bengaluru\"}]}";
+    try (ApiCassette cassette = ApiCassette.record(file)) {
+      cassette.record(
+          new ApiExchange(
+              "GET "
+                  + AUTOCOMPLETE
+                  + "?input=Beng&type=locality&components=country:in"
+                  + "&locationbias=circle:50000@13.0,77.6",
+              200,
+              body,
+              1));
+    }
+    PlaceQueryContext context =
+        new PlaceQueryContext(
+            "in", new PlaceQueryContext.LocationBias(12.9716, 77.5946, 50_000), "session-1");
+
+    try (GoogleApiService service =
+        new GoogleApiService("test", ApiCassette.replay(file, false))) {
+      JSONArray predictions = service.getPredictions("Beng", "locality", context);
+
+      assertEquals("Bengaluru", predictions.getJSONObject(0).getString("description"));
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package demo.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.ApiExchange;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.demo.service.RequestClass;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the RequestClass enum.
+ */
+public class RequestClassTest {
+
+  private static final GoogleEndpoint GOOGLE = GoogleEndpoint.AUTOCOMPLETE;
+
+  @Test
+  public void testCurrent_defaultsToInteractive() {
+    assertEquals(RequestClass.INTERACTIVE, RequestClass.current());
+  }
+
+  @Test
+  @SuppressWarnings("try")
+  public void testEnter_restoresPreviousClassOnClose() {
+    try (RequestClass.Scope bulk = RequestClass.BULK.enter()) {
+      assertEquals(RequestClass.BULK, RequestClass.current());
+      try (RequestClass.Scope prefetch = RequestClass.PREFETCH.enter()) {
+        assertEquals(RequestClass.PREFETCH, RequestClass.current());
+      }
+      assertEquals(RequestClass.BULK, RequestClass.current());
+    }
+    assertEquals(RequestClass.INTERACTIVE, RequestClass.current());
+  }
+
+  @Test
+  @SuppressWarnings("try")
+  public void testSaturatedEndpoint_shedsPrefetchWhileBulkWaits() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch sent = new CountDownLatch(1);
+    GoogleApiService service =
+        new GoogleApiService("test", null, 1) {
+          @Override
+          protected ApiExchange transmit(HttpUriRequestBase request, String key)
+              throws IOException {
+            if (key.contains("input=held")) {
+              sent.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                throw new InterruptedIOException("Interrupted");
+              }
+            }
+            return new ApiExchange(key, 200, "{\"status\":\"OK\",\"predictions\":[]}", 10);
+          }
+        };
+    try (service;
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      // The only connection is taken by an interactive request
+      Future<JSONArray> held = executor.submit(() -> service.getPredictions("held", "address"));
+      assertTrue(sent.await(5, TimeUnit.SECONDS));
+      Future<JSONArray> bulk =
+          executor.submit(
+              () -> {
+                try (RequestClass.Scope scope = RequestClass.BULK.enter()) {
+                  return service.getPredictions("bulk", "address");
+                }
+              });
+      for (int i = 0; i < 500 && service.getQueueDepth(GOOGLE, RequestClass.BULK) == 0; i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, service.getQueueDepth(GOOGLE, RequestClass.BULK));
+
+      GoogleApiException shed;
+      try (RequestClass.Scope scope = RequestClass.PREFETCH.enter()) {
+        shed =
+            assertThrows(
+                GoogleApiException.class, () -> service.getPredictions("prefetch", "address"));
+      }
+      assertEquals(GoogleApiService.LOAD_SHED_STATUS, shed.getStatusCode());
+      assertFalse(bulk.isDone());
+
+      release.countDown();
+      assertNotNull(held.get(5, TimeUnit.SECONDS));
+      assertNotNull(bulk.get(5, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -0,0 +1,126 @@
+package demo.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Optional;
+import org.demo.service.cache.CacheNode;
+import org.demo.service.cache.ConsistentHashCacheClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the ConsistentHashCacheClient class, run against local cache nodes.
+ */
+public class ConsistentHashCacheClientTest {
+
+  private static final String SECRET = "test-secret";
+
+  private CacheNode first;
+  private CacheNode second;
+  private CacheNode third;
+
+  @BeforeEach
+  public void startNodes() throws IOException {
+    first = new CacheNode(0, 1000, SECRET);
+    second = new CacheNode(0, 1000, SECRET);
+    third = new CacheNode(0, 1000, SECRET);
+  }
+
+  @AfterEach
+  public void stopNodes() throws IOException {
+    first.close();
+    second.close();
+    third.close();
+  }
+
+  private List<InetSocketAddress> peers() {
+    return List.of(
+        new InetSocketAddress("localhost", first.getPort()),
+        new InetSocketAddress("localhost", second.getPort()),
+        new InetSocketAddress("localhost", third.getPort()));
+  }
+
+  @Test
+  public void testPutAndGet_spreadsKeysAcrossNodes() {
+    try (ConsistentHashCacheClient client = new ConsistentHashCacheClient(peers(), SECRET)) {
+      for (int i = 0; i < 300; i++) {
+        client.put("GET /key" + i, "body" + i);
+      }
+      for (int i = 0; i < 300; i++) {
+        assertEquals(Optional.of("body" + i), client.get("GET /key" + i));
+      }
+    }
+
+    assertEquals(300, first.size() + second.size() + third.size());
+    assertTrue(first.size() > 0);
+    assertTrue(second.size() > 0);
+    assertTrue(third.size() > 0);
+  }
+
+  @Test
+  public void testGet_sharesEntriesBetweenClients() {
+    try (ConsistentHashCacheClient writer = new ConsistentHashCacheClient(peers(), SECRET);
+        ConsistentHashCacheClient reader = new ConsistentHashCacheClient(peers(), SECRET)) {
+      writer.put("GET /shared", "{\"status\":\"OK\"}");
+
+      assertEquals(Optional.of("{\"status\":\"OK\"}"), reader.get("GET /shared"));
+      assertEquals(Optional.empty(), reader.get("GET /missing"));
+    }
+  }
+
+  @Test
+  public void testPutAndGet_withKeysTooLongForModifiedUtf8() {
+    String key = "GET /" + "é".repeat(40_000);
+    try (ConsistentHashCacheClient client = new ConsistentHashCacheClient(peers(), SECRET)) {
+      client.put(key, "body");
+
+      assertEquals(Optional.of("body"), client.get(key));
+      // The node stays in use for other keys
+      client.put("GET /short", "short");
+      assertEquals(Optional.of("short"), client.get("GET /short"));
+    }
+  }
+
+  @Test
+  public void testPut_rejectedWithWrongSecret() {
+    try (ConsistentHashCacheClient intruder = new ConsistentHashCacheClient(peers(), "guess")) {
+      intruder.put("GET /key", "forged");
+    }
+
+    assertEquals(0, first.size() + second.size() + third.size());
+    try (ConsistentHashCacheClient client = new ConsistentHashCacheClient(peers(), SECRET)) {
+      assertEquals(Optional.empty(), client.get("GET /key"));
+    }
+  }
+
+  @Test
+  public void testCacheNode_listensOnLoopbackByDefault() {
+    assertTrue(first.getAddress().isLoopbackAddress());
+  }
+
+  @Test
+  public void testGet_withUnreachableNodeIsAMiss() throws IOException {
+    try (ConsistentHashCacheClient client = new ConsistentHashCacheClient(peers(), SECRET)) {
+      first.close();
+      second.close();
+      third.close();
+
+      client.put("GET /key", "body");
+      assertEquals(Optional.empty(), client.get("GET /key"));
+    }
+  }
+
+  @Test
+  public void testParsePeers() {
+    List<InetSocketAddress> peers =
+        ConsistentHashCacheClient.parsePeers("cache-1:7070, cache-2:7071");
+
+    assertEquals(2, peers.size());
+    assertEquals("cache-1", peers.get(0).getHostString());
+    assertEquals(7071, peers.get(1).getPort());
+  }
+}
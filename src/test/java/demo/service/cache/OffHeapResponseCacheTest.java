@@ -0,0 +1,73 @@
+package demo.service.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import org.demo.service.cache.OffHeapResponseCache;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the OffHeapResponseCache class.
+ */
+public class OffHeapResponseCacheTest {
+
+  private static String body(int i) {
+    return "{\"status\":\"OK\",\"results\":[{\"place_id\":\"" + i + "\"}]}";
+  }
+
+  @Test
+  public void testGet_returnsStoredBody() {
+    OffHeapResponseCache cache = new OffHeapResponseCache(1 << 20);
+
+    cache.put("GET /geocode?latlng=1,2", body(1));
+
+    assertEquals(Optional.of(body(1)), cache.get("GET /geocode?latlng=1,2"));
+    assertEquals(Optional.empty(), cache.get("GET /geocode?latlng=3,4"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testPut_replacesEarlierBody() {
+    OffHeapResponseCache cache = new OffHeapResponseCache(1 << 20);
+
+    cache.put("key", body(1));
+    cache.put("key", body(2));
+
+    assertEquals(Optional.of(body(2)), cache.get("key"));
+    assertEquals(1, cache.size());
+  }
+
+  @Test
+  public void testPut_evictsOldestEntriesToStayWithinCapacity() {
+    long capacity = 16 * 4096;
+    OffHeapResponseCache cache = new OffHeapResponseCache(capacity);
+
+    for (int i = 0; i < 50_000; i++) {
+      cache.put("key-" + i, body(i));
+      assertTrue(cache.getUsedBytes() <= capacity);
+    }
+
+    assertEquals(Optional.empty(), cache.get("key-0"));
+    assertEquals(Optional.of(body(49_999)), cache.get("key-49999"));
+    assertTrue(cache.size() > 500);
+    assertTrue(cache.size() < 50_000);
+  }
+
+  @Test
+  public void testGet_findsEveryEntryThatWasNotEvicted() {
+    OffHeapResponseCache cache = new OffHeapResponseCache(16 * 4096);
+    for (int i = 0; i < 20_000; i++) {
+      cache.put("key-" + (i % 5000), body(i));
+    }
+
+    int found = 0;
+    for (int i = 0; i < 5000; i++) {
+      Optional<String> cached = cache.get("key-" + i);
+      if (cached.isPresent()) {
+        assertEquals(body(15_000 + i), cached.get());
+        found++;
+      }
+    }
+    assertEquals(cache.size(), found);
+  }
+}
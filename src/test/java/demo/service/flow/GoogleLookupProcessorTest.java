@@ -0,0 +1,105 @@
+package demo.service.flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.demo.service.flow.GoogleLookupProcessor;
+import org.demo.service.flow.LookupRequest;
+import org.demo.service.flow.LookupResult;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the GoogleLookupProcessor class.
+ */
+public class GoogleLookupProcessorTest {
+
+  /** A subscriber that requests one result at a time. */
+  private static class SlowSubscriber implements Flow.Subscriber<LookupResult> {
+    private final Set<String> ids = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private Flow.Subscription subscription;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+      subscription.request(1);
+    }
+
+    @Override
+    public void onNext(LookupResult result) {
+      ids.add(result.request().id());
+      if (!result.isSuccess()) {
+        failures.incrementAndGet();
+      }
+      subscription.request(1);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      done.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      done.countDown();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("try")
+  public void testProcessesAllRequestsWithBoundedConcurrency() throws InterruptedException {
+    FakeGoogleApiService service = new FakeGoogleApiService().withLatency(Duration.ofMillis(2));
+    SlowSubscriber subscriber = new SlowSubscriber();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        SubmissionPublisher<LookupRequest> source = new SubmissionPublisher<>(executor, 16);
+        GoogleLookupProcessor processor = new GoogleLookupProcessor(service, 4, executor)) {
+      processor.subscribe(subscriber);
+      source.subscribe(processor);
+      for (int i = 0; i < 200; i++) {
+        source.submit(LookupRequest.predictions("r" + i, i == 7 ? "bad" : "input" + i, "address"));
+      }
+      source.close();
+
+      assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(200, subscriber.ids.size());
+    assertEquals(1, subscriber.failures.get());
+    assertTrue(service.getMaxRunning() <= 4);
+  }
+
+  @Test
+  @SuppressWarnings("try")
+  public void testWaitsForSubscriberBeforeRequestingUpstream() throws InterruptedException {
+    FakeGoogleApiService service = new FakeGoogleApiService().withLatency(Duration.ofMillis(2));
+    SlowSubscriber subscriber = new SlowSubscriber();
+
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        SubmissionPublisher<LookupRequest> source = new SubmissionPublisher<>(executor, 16);
+        GoogleLookupProcessor processor = new GoogleLookupProcessor(service, 2, executor)) {
+      source.subscribe(processor);
+      for (String id : List.of("a", "b", "c")) {
+        source.submit(LookupRequest.predictions(id, id, "address"));
+      }
+      source.close();
+      processor.subscribe(subscriber);
+
+      assertTrue(subscriber.done.await(10, TimeUnit.SECONDS));
+    }
+
+    assertEquals(Set.of("a", "b", "c"), subscriber.ids);
+  }
+}
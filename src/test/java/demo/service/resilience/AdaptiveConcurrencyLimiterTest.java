@@ -0,0 +1,161 @@
+package demo.service.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.demo.service.resilience.AdaptiveConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the AdaptiveConcurrencyLimiter class.
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+  private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(20);
+
+  /** Runs rounds of requests that keep the limiter fully used, all with the given latency. */
+  private static void runSaturated(AdaptiveConcurrencyLimiter limiter, long latency, int rounds)
+      throws InterruptedException {
+    for (int round = 0; round < rounds; round++) {
+      int permits = limiter.getLimit();
+      for (int i = 0; i < permits; i++) {
+        limiter.acquire();
+      }
+      for (int i = 0; i < permits; i++) {
+        limiter.onSuccess(latency);
+      }
+    }
+  }
+
+  @Test
+  public void testLimit_growsWhileLatencyStaysNearBaseline() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 1, 50);
+
+    runSaturated(limiter, BASELINE, 20);
+
+    assertTrue(limiter.getLimit() > 4);
+    assertTrue(limiter.getLimit() <= 50);
+  }
+
+  @Test
+  public void testLimit_shrinksWhenLatencyInflates() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 20, 1, 50);
+    runSaturated(limiter, BASELINE, 1);
+    int before = limiter.getLimit();
+
+    runSaturated(limiter, BASELINE * 5, 5);
+
+    assertTrue(limiter.getLimit() < before);
+  }
+
+  @Test
+  public void testLimit_doesNotGrowWhenUnderused() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 10, 1, 50);
+
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire();
+      limiter.onSuccess(BASELINE);
+    }
+
+    assertEquals(10, limiter.getLimit());
+  }
+
+  @Test
+  public void testOnDropped_halvesLimit() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 16, 1, 50);
+
+    limiter.acquire();
+    limiter.onDropped();
+
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  public void testAcquire_waitsAtLimitAndCountsQueueDepth() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1);
+    limiter.acquire();
+
+    CountDownLatch acquired = new CountDownLatch(1);
+    Thread waiter =
+        Thread.ofVirtual()
+            .start(
+                () -> {
+                  try {
+                    limiter.acquire();
+                    acquired.countDown();
+                  } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                  }
+                });
+
+    for (int i = 0; i < 100 && limiter.getQueueDepth() == 0; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(1, limiter.getQueueDepth());
+    assertFalse(acquired.await(50, TimeUnit.MILLISECONDS));
+
+    limiter.onIgnored();
+    assertTrue(acquired.await(1, TimeUnit.SECONDS));
+    waiter.join();
+    assertEquals(0, limiter.getQueueDepth());
+    assertEquals(1, limiter.getInFlight());
+  }
+
+  @Test
+  public void testAcquire_urgentLaneGoesFirst() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 2);
+    limiter.acquire(0, Long.MAX_VALUE);
+
+    List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+    Thread bulk = startWaiter(limiter, 1, order);
+    awaitQueueDepth(limiter, 1);
+    Thread interactive = startWaiter(limiter, 0, order);
+    awaitQueueDepth(limiter, 2);
+
+    limiter.onIgnored();
+    interactive.join();
+    bulk.join();
+
+    assertEquals(List.of(0, 1), order);
+  }
+
+  @Test
+  public void testAcquire_lowerLaneLeavesLastPermitForUrgentLane() throws InterruptedException {
+    AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 3, 1, 3, 3);
+
+    assertTrue(limiter.acquire(1, 0));
+    assertTrue(limiter.acquire(2, 0));
+    assertFalse(limiter.acquire(2, 0));
+    assertFalse(limiter.acquire(1, TimeUnit.MILLISECONDS.toNanos(20)));
+    assertTrue(limiter.acquire(0, 0));
+    assertEquals(0, limiter.getQueueDepth());
+  }
+
+  /** Starts a thread that acquires a permit in a lane, records the lane and releases it. */
+  private static Thread startWaiter(
+      AdaptiveConcurrencyLimiter limiter, int lane, List<Integer> order) {
+    return Thread.ofVirtual()
+        .start(
+            () -> {
+              try {
+                limiter.acquire(lane, Long.MAX_VALUE);
+                order.add(lane);
+                limiter.onIgnored();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+            });
+  }
+
+  private static void awaitQueueDepth(AdaptiveConcurrencyLimiter limiter, int depth)
+      throws InterruptedException {
+    for (int i = 0; i < 100 && limiter.getQueueDepth() < depth; i++) {
+      Thread.sleep(10);
+    }
+    assertEquals(depth, limiter.getQueueDepth());
+  }
+}
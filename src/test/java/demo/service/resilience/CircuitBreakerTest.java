@@ -0,0 +1,84 @@
+package demo.service.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import org.demo.service.resilience.CircuitBreaker;
+import org.demo.service.resilience.CircuitBreaker.State;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the CircuitBreaker class.
+ */
+public class CircuitBreakerTest {
+
+  private final AtomicLong clock = new AtomicLong();
+
+  private CircuitBreaker newCircuitBreaker() {
+    return new CircuitBreaker("test", 10, 0.5, 4, Duration.ofSeconds(30), clock::get);
+  }
+
+  private static void call(CircuitBreaker circuitBreaker, boolean succeeds) {
+    assertTrue(circuitBreaker.tryAcquire());
+    if (succeeds) {
+      circuitBreaker.onSuccess();
+    } else {
+      circuitBreaker.onFailure();
+    }
+  }
+
+  @Test
+  public void testStaysClosedBelowMinimumCalls() {
+    CircuitBreaker circuitBreaker = newCircuitBreaker();
+    call(circuitBreaker, false);
+    call(circuitBreaker, false);
+    call(circuitBreaker, false);
+
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testOpensWhenFailureRateReachesThreshold() {
+    CircuitBreaker circuitBreaker = newCircuitBreaker();
+    call(circuitBreaker, true);
+    call(circuitBreaker, true);
+    call(circuitBreaker, false);
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+
+    call(circuitBreaker, false);
+
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire());
+  }
+
+  @Test
+  public void testHalfOpenTrialClosesOnSuccess() {
+    CircuitBreaker circuitBreaker = newCircuitBreaker();
+    for (int i = 0; i < 4; i++) {
+      call(circuitBreaker, false);
+    }
+    clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+    assertTrue(circuitBreaker.tryAcquire());
+    assertEquals(State.HALF_OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire());
+
+    circuitBreaker.onSuccess();
+    assertEquals(State.CLOSED, circuitBreaker.getState());
+  }
+
+  @Test
+  public void testHalfOpenTrialReopensOnFailure() {
+    CircuitBreaker circuitBreaker = newCircuitBreaker();
+    for (int i = 0; i < 4; i++) {
+      call(circuitBreaker, false);
+    }
+    clock.addAndGet(Duration.ofSeconds(31).toNanos());
+
+    call(circuitBreaker, false);
+
+    assertEquals(State.OPEN, circuitBreaker.getState());
+    assertFalse(circuitBreaker.tryAcquire());
+  }
+}
@@ -0,0 +1,46 @@
+package demo.service.resilience;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.demo.service.resilience.LatencyTracker;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the LatencyTracker class.
+ */
+public class LatencyTrackerTest {
+
+  @Test
+  public void testPercentile_withoutSamplesIsZero() {
+    LatencyTracker tracker = new LatencyTracker(10);
+
+    assertEquals(0, tracker.getSampleCount());
+    assertEquals(0, tracker.percentile(0.95));
+  }
+
+  @Test
+  public void testPercentile_ranksSamples() {
+    LatencyTracker tracker = new LatencyTracker(100);
+    for (int latency = 100; latency >= 1; latency--) {
+      tracker.record(latency);
+    }
+
+    assertEquals(100, tracker.getSampleCount());
+    assertEquals(50, tracker.percentile(0.5));
+    assertEquals(95, tracker.percentile(0.95));
+    assertEquals(100, tracker.percentile(1));
+    assertEquals(1, tracker.percentile(0));
+  }
+
+  @Test
+  public void testRecord_keepsOnlyTheMostRecentWindow() {
+    LatencyTracker tracker = new LatencyTracker(10);
+    for (int latency = 1; latency <= 20; latency++) {
+      tracker.record(latency);
+    }
+
+    assertEquals(10, tracker.getSampleCount());
+    assertEquals(11, tracker.percentile(0));
+    assertEquals(20, tracker.percentile(1));
+  }
+}
@@ -0,0 +1,133 @@
+package demo.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.demo.service.GoogleEndpoint;
+import org.demo.session.LocationSession;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Replays scripted menu sessions against a fake GoogleApiService and checks how many Google
+ * requests each scenario makes. The budgets in {@code /session/call-budgets.properties} are the
+ * current counts per scenario and endpoint: a change that makes a scenario call Google more often
+ * fails the build, and a change that saves calls should lower the budget.
+ */
+public class CallAmplificationTest {
+
+  private static final String BUDGETS = "/session/call-budgets.properties";
+
+  /** Simulated round-trip latency per endpoint, in milliseconds. */
+  private static final Map<GoogleEndpoint, Long> LATENCY_MILLIS =
+      Map.of(
+          GoogleEndpoint.AUTOCOMPLETE, 90L,
+          GoogleEndpoint.GEOCODING, 110L,
+          GoogleEndpoint.GEOLOCATION, 150L);
+
+  /** A scripted session: the lines a user types, in order. */
+  private record Scenario(String name, List<String> lines) {
+    Scenario(String name, String... lines) {
+      this(name, List.of(lines));
+    }
+  }
+
+  private static final List<Scenario> SCENARIOS =
+      List.of(
+          new Scenario("country-address-pinpoint", "1", "Indi", "1", "4", "MG Road", "1", "8", "9"),
+          new Scenario("state-with-typo", "2", "Karnatka", "1", "9"),
+          new Scenario("city-then-state", "3", "Bengaluru", "1", "2", "Karnataka", "1", "9"),
+          new Scenario("pin-code", "1", "India", "1", "5", "560001", "1", "9"),
+          new Scenario("impossible-pin-code", "1", "India", "1", "5", "0560", "9"),
+          new Scenario("refine-search", "4", "MG", "MG Road", "1", "9"),
+          new Scenario("current-location-pinpoint", "6", "8", "9"));
+
+  /** Calls, bytes and simulated time per endpoint for one scenario. */
+  private record Usage(FakeGoogleApiService service) {
+
+    int calls(GoogleEndpoint endpoint) {
+      return service.getCalls(endpoint);
+    }
+
+    long totalBytes() {
+      long bytes = 0;
+      for (GoogleEndpoint endpoint : GoogleEndpoint.values()) {
+        bytes += service.getResponseBytes(endpoint);
+      }
+      return bytes;
+    }
+
+    long simulatedMillis() {
+      long millis = 0;
+      for (GoogleEndpoint endpoint : GoogleEndpoint.values()) {
+        millis += calls(endpoint) * LATENCY_MILLIS.get(endpoint);
+      }
+      return millis;
+    }
+  }
+
+  private static Usage replay(Scenario scenario) {
+    FakeGoogleApiService service = new FakeGoogleApiService();
+    LocationSession session =
+        new LocationSession(service, LocationSession.newPlaceNameIndexes(), false);
+    session.start();
+    for (String line : scenario.lines()) {
+      assertFalse(session.isClosed(), scenario.name() + " ended before its script");
+      session.handle(line);
+    }
+    assertTrue(session.isClosed(), scenario.name() + " did not end with Exit");
+    return new Usage(service);
+  }
+
+  private static Properties loadBudgets() throws IOException {
+    Properties budgets = new Properties();
+    try (InputStream in = CallAmplificationTest.class.getResourceAsStream(BUDGETS)) {
+      assertNotNull(in, "Missing " + BUDGETS);
+      budgets.load(in);
+    }
+    return budgets;
+  }
+
+  @Test
+  public void testScenariosStayWithinCallBudgets() throws IOException {
+    Properties budgets = loadBudgets();
+    List<String> overBudget = new ArrayList<>();
+    StringBuilder report =
+        new StringBuilder(
+            String.format(
+                "%-28s %5s %8s %7s %8s %8s%n",
+                "scenario", "auto", "geocode", "geoloc", "bytes", "sim ms"));
+
+    for (Scenario scenario : SCENARIOS) {
+      Usage usage = replay(scenario);
+      report.append(
+          String.format(
+              "%-28s %5d %8d %7d %8d %8d%n",
+              scenario.name(),
+              usage.calls(GoogleEndpoint.AUTOCOMPLETE),
+              usage.calls(GoogleEndpoint.GEOCODING),
+              usage.calls(GoogleEndpoint.GEOLOCATION),
+              usage.totalBytes(),
+              usage.simulatedMillis()));
+      for (GoogleEndpoint endpoint : GoogleEndpoint.values()) {
+        String key = scenario.name() + "." + endpoint;
+        String budget = budgets.getProperty(key);
+        assertNotNull(budget, "No call budget for " + key);
+        int calls = usage.calls(endpoint);
+        if (calls > Integer.parseInt(budget)) {
+          overBudget.add(key + ": " + calls + " calls, budget " + budget);
+        }
+      }
+    }
+    System.out.print(report);
+
+    assertTrue(
+        overBudget.isEmpty(),
+        "Scenarios now make more Google calls than budgeted:\n" + String.join("\n", overBudget));
+  }
+}
@@ -0,0 +1,190 @@
+package demo.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.GoogleApiService;
+import org.demo.service.GoogleEndpoint;
+import org.demo.service.PlaceQueryContext;
+import org.demo.session.LocationSession;
+import org.demo.util.PostalCodeIndex;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the LocationSession class.
+ */
+public class LocationSessionTest {
+
+  private static LocationSession newSession(GoogleApiService service) {
+    return new LocationSession(service, LocationSession.newPlaceNameIndexes(), false);
+  }
+
+  @Test
+  public void testStart_showsMenuAndAsksForChoice() {
+    LocationSession.Reply reply = newSession(new FakeGoogleApiService()).start();
+
+    assertTrue(reply.output().contains("1. Country"));
+    assertEquals("Enter your choice: ", reply.prompt());
+  }
+
+  @Test
+  public void testSelectingPredictionFillsRelatedFields() {
+    FakeGoogleApiService service = new FakeGoogleApiService();
+    LocationSession session = newSession(service);
+    session.start();
+
+    LocationSession.Reply reply = session.handle("2");
+    assertEquals("Please enter the state: ", reply.prompt());
+    assertEquals("administrative_area_level_1", session.getPendingLocationType().orElseThrow());
+
+    reply = session.handle("Karnatka");
+    assertTrue(reply.output().contains("1. Karnataka, India"));
+    assertEquals("Enter index or continue searching: ", reply.prompt());
+
+    reply = session.handle("1");
+    assertEquals("Enter your choice: ", reply.prompt());
+    assertTrue(reply.output().contains("State: Karnataka"));
+    assertEquals("Karnataka", session.getLocationInfo().getState().orElseThrow());
+    // India is matched locally against the preloaded country names
+    assertEquals("India", session.getLocationInfo().getCountry().orElseThrow());
+    assertEquals(1, service.getCalls(GoogleEndpoint.AUTOCOMPLETE));
+  }
+
+  @Test
+  public void testLocationWithoutPredictionsIsUsedAsEntered() {
+    LocationSession session = newSession(new FakeGoogleApiService());
+    session.start();
+
+    session.handle("3");
+    LocationSession.Reply reply = session.handle("nowhere");
+
+    assertEquals("Enter your choice: ", reply.prompt());
+    assertEquals("nowhere", session.getLocationInfo().getCity().orElseThrow());
+  }
+
+  @Test
+  public void testPrefetchedPredictionsAreNotFetchedAgain() {
+    FakeGoogleApiService service = new FakeGoogleApiService();
+    LocationSession session = newSession(service);
+    session.start();
+
+    session.handle("1");
+    JSONArray prefetched = new JSONArray().put(FakeGoogleApiService.prediction("India", "India"));
+    LocationSession.Reply reply = session.handle("Ind", prefetched);
+
+    assertTrue(reply.output().contains("1. India"));
+    assertEquals(0, service.getCalls(GoogleEndpoint.AUTOCOMPLETE));
+  }
+
+  @Test
+  public void testInvalidChoiceAndExit() {
+    LocationSession session = newSession(new FakeGoogleApiService());
+    session.start();
+
+    assertTrue(session.handle("abc").output().contains("Please enter a number"));
+    assertTrue(session.handle("42").output().contains("Invalid choice"));
+
+    LocationSession.Reply reply = session.handle("9");
+    assertTrue(reply.isClosed());
+    assertTrue(session.isClosed());
+  }
+
+  @Test
+  public void testPinCode_rejectsOnlyImpossibleCodesLocally() {
+    FakeGoogleApiService service = new FakeGoogleApiService();
+    LocationSession session = newSession(service);
+    session.start();
+    session.handle("1");
+    session.handle("India");
+    session.handle("1");
+
+    session.handle("5");
+    LocationSession.Reply reply = session.handle("0560");
+    assertTrue(reply.output().contains("not a valid postal code for India"));
+    assertEquals(1, service.getCalls(GoogleEndpoint.AUTOCOMPLETE));
+
+    session.handle("5");
+    reply = session.handle("Bangalore 560001");
+    assertTrue(reply.output().contains("1. 560001, Bengaluru, Karnataka, India"));
+    assertEquals(2, service.getCalls(GoogleEndpoint.AUTOCOMPLETE));
+
+    // An incomplete code is left to autocomplete, which suggests the codes it could become
+    reply = session.handle("5600");
+    assertTrue(reply.output().contains("1. 560001, Bengaluru, Karnataka, India"));
+    assertEquals(3, service.getCalls(GoogleEndpoint.AUTOCOMPLETE));
+  }
+
+  @Test
+  public void testCurrentLocation_usesPostalCodeIndexInsteadOfGeocoding(@TempDir Path dir)
+      throws IOException {
+    Path source = dir.resolve("postal-codes.txt");
+    Files.writeString(
+        source, "IN\t560001\tBengaluru\tKarnataka\t19\t\t\t\t\t12.9716\t77.5946\t4\n");
+    PostalCodeIndex.build(source, dir.resolve("postal-codes.idx"));
+    PostalCodeIndex index = PostalCodeIndex.open(dir.resolve("postal-codes.idx"));
+    FakeGoogleApiService service =
+        new FakeGoogleApiService() {
+          @Override
+          protected JSONObject geolocate() {
+            return new JSONObject()
+                .put("location", new JSONObject().put("lat", 12.97).put("lng", 77.59));
+          }
+
+          @Override
+          protected JSONObject geocode(double latitude, double longitude) {
+            throw new AssertionError("Geocoding should not be called");
+          }
+        };
+    LocationSession session =
+        new LocationSession(service, LocationSession.newPlaceNameIndexes(), index, false);
+    session.start();
+
+    session.handle("6");
+
+    assertEquals("560001", session.getLocationInfo().getPinCode().orElseThrow());
+    assertEquals("Bengaluru", session.getLocationInfo().getCity().orElseThrow());
+    assertEquals("Karnataka", session.getLocationInfo().getState().orElseThrow());
+    assertEquals("India", session.getLocationInfo().getCountry().orElseThrow());
+    assertTrue(session.getLocationInfo().getAddress().isEmpty());
+  }
+
+  @Test
+  public void testPredictions_areNarrowedByWhatIsKnown() {
+    List<PlaceQueryContext> contexts = new ArrayList<>();
+    FakeGoogleApiService service =
+        new FakeGoogleApiService() {
+          @Override
+          protected JSONArray predictions(String input, String type, PlaceQueryContext context)
+              throws GoogleApiException {
+            contexts.add(context);
+            return super.predictions(input, type, context);
+          }
+        };
+    LocationSession session = newSession(service);
+    session.start();
+
+    session.handle("2");
+    assertNull(session.getPendingQueryContext().orElseThrow().countryCode());
+    session.handle("Karnatka");
+    session.handle("1");
+    // Selecting the state also filled in its country, India
+    session.handle("3");
+    assertEquals("in", session.getPendingQueryContext().orElseThrow().countryCode());
+    session.handle("Bengaluru");
+
+    assertEquals(2, contexts.size());
+    assertNull(contexts.get(0).countryCode());
+    assertEquals("in", contexts.get(1).countryCode());
+    // Selecting a prediction ends the autocomplete session
+    assertNotEquals(contexts.get(0).sessionToken(), contexts.get(1).sessionToken());
+  }
+}
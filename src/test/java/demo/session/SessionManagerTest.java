@@ -0,0 +1,179 @@
+package demo.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.demo.service.GoogleApiService;
+import org.demo.service.PlaceQueryContext;
+import org.demo.session.LocationSession;
+import org.demo.session.SessionManager;
+import org.demo.session.SessionManager.CreatedSession;
+import org.demo.util.PlaceNameIndex;
+import org.json.JSONArray;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the SessionManager class.
+ */
+public class SessionManagerTest {
+
+  private final AtomicLong now = new AtomicLong();
+
+  private SessionManager newManager(int maxSessions) {
+    return new SessionManager(
+        new GoogleApiService("test"), Duration.ofMinutes(10), maxSessions, now::get);
+  }
+
+  @Test
+  public void testSessionsAreIndependent() {
+    try (SessionManager manager = newManager(10)) {
+      String first = manager.create().orElseThrow().id();
+      String second = manager.create().orElseThrow().id();
+      assertNotEquals(first, second);
+
+      assertEquals("Please enter the city: ", manager.handle(first, "3").orElseThrow().prompt());
+      assertEquals("Enter your choice: ", manager.handle(second, "7").orElseThrow().prompt());
+      assertEquals(2, manager.size());
+    }
+  }
+
+  @Test
+  public void testCreate_rejectsWhenFull() {
+    try (SessionManager manager = newManager(2)) {
+      assertTrue(manager.create().isPresent());
+      assertTrue(manager.create().isPresent());
+      assertTrue(manager.create().isEmpty());
+    }
+  }
+
+  @Test
+  public void testCreate_neverOvershootsWhenRacing() throws Exception {
+    try (SessionManager manager = newManager(10);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      CountDownLatch go = new CountDownLatch(1);
+      List<Future<Optional<CreatedSession>>> creates = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        creates.add(
+            executor.submit(
+                () -> {
+                  go.await();
+                  return manager.create();
+                }));
+      }
+      go.countDown();
+      int created = 0;
+      String id = null;
+      for (Future<Optional<CreatedSession>> create : creates) {
+        Optional<CreatedSession> session = create.get();
+        if (session.isPresent()) {
+          created++;
+          id = session.get().id();
+        }
+      }
+
+      assertEquals(10, created);
+      assertEquals(10, manager.size());
+      // Removing a session frees its slot
+      assertTrue(manager.remove(id));
+      assertTrue(manager.create().isPresent());
+      assertTrue(manager.create().isEmpty());
+    }
+  }
+
+  @Test
+  public void testIdleSession_costsAFewKilobytes() {
+    com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    int sessions = 1_000;
+    try (SessionManager manager = newManager(sessions + 1)) {
+      manager.create();
+      long before = threads.getCurrentThreadAllocatedBytes();
+      for (int i = 0; i < sessions; i++) {
+        manager.create();
+      }
+      long bytesPerSession = (threads.getCurrentThreadAllocatedBytes() - before) / sessions;
+
+      // All an idle session keeps was allocated while creating it, so this bounds its footprint
+      assertTrue(
+          bytesPerSession < 8 * 1024, "Allocated " + bytesPerSession + " bytes per session");
+    }
+  }
+
+  @Test
+  public void testSelections_doNotGrowSharedIndexes() {
+    FakeGoogleApiService service =
+        new FakeGoogleApiService() {
+          @Override
+          protected JSONArray predictions(String input, String type, PlaceQueryContext context) {
+            // Every city entered is a new one
+            return new JSONArray()
+                .put(FakeGoogleApiService.prediction(input, input, "Karnataka", "India"));
+          }
+        };
+    int maxLearnedNames = 50;
+    Map<String, PlaceNameIndex> indexes = LocationSession.newPlaceNameIndexes(maxLearnedNames);
+    int preloaded = totalSize(indexes);
+    try (SessionManager manager =
+        new SessionManager(service, indexes, Duration.ofMinutes(10), 10, now::get)) {
+      selectCities(manager, 0, 2 * maxLearnedNames);
+      int afterFirstRound = totalSize(indexes);
+      selectCities(manager, 2 * maxLearnedNames, 10 * maxLearnedNames);
+
+      assertEquals(afterFirstRound, totalSize(indexes));
+      assertTrue(afterFirstRound <= preloaded + indexes.size() * maxLearnedNames);
+      assertEquals(0, manager.size());
+    }
+  }
+
+  private static void selectCities(SessionManager manager, int from, int to) {
+    for (int i = from; i < to; i++) {
+      String id = manager.create().orElseThrow().id();
+      manager.handle(id, "3");
+      manager.handle(id, "Town " + i);
+      assertEquals("Enter your choice: ", manager.handle(id, "1").orElseThrow().prompt());
+      assertTrue(manager.handle(id, "9").orElseThrow().isClosed());
+    }
+  }
+
+  private static int totalSize(Map<String, PlaceNameIndex> indexes) {
+    return indexes.values().stream().mapToInt(PlaceNameIndex::size).sum();
+  }
+
+  @Test
+  public void testEvictIdle_removesOnlyIdleSessions() {
+    try (SessionManager manager = newManager(10)) {
+      String idle = manager.create().orElseThrow().id();
+      String active = manager.create().orElseThrow().id();
+
+      now.addAndGet(Duration.ofMinutes(8).toNanos());
+      manager.handle(active, "7");
+      now.addAndGet(Duration.ofMinutes(3).toNanos());
+
+      assertEquals(1, manager.evictIdle());
+      assertTrue(manager.handle(idle, "7").isEmpty());
+      assertTrue(manager.handle(active, "7").isPresent());
+    }
+  }
+
+  @Test
+  public void testHandle_removesSessionOnExit() {
+    try (SessionManager manager = newManager(10)) {
+      String id = manager.create().orElseThrow().id();
+
+      assertTrue(manager.handle(id, "9").orElseThrow().isClosed());
+      assertEquals(0, manager.size());
+      assertTrue(manager.handle(id, "1").isEmpty());
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package demo.session;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.demo.session.SessionManager;
+import org.demo.session.SessionServer;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the SessionServer class.
+ */
+public class SessionServerTest {
+
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+  private final HttpClient client = HttpClient.newBuilder().executor(executor).build();
+  private SessionManager manager;
+  private SessionServer server;
+
+  private void startServer(FakeGoogleApiService service, int maxSessions) throws IOException {
+    manager = new SessionManager(service, Duration.ofMinutes(10), maxSessions, System::nanoTime);
+    server = new SessionServer(0, manager);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (server != null) {
+      server.close();
+    }
+    if (manager != null) {
+      manager.close();
+    }
+    executor.shutdownNow();
+  }
+
+  private HttpResponse<String> send(String method, String path, String body)
+      throws IOException, InterruptedException {
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+            .method(method, HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+
+  private String createSession() throws IOException, InterruptedException {
+    HttpResponse<String> created = send("POST", "/sessions", "");
+    assertEquals(201, created.statusCode());
+    return created.headers().firstValue("Location").orElseThrow();
+  }
+
+  @Test
+  public void testSessionLifecycle() throws Exception {
+    startServer(new FakeGoogleApiService(), 10);
+
+    HttpResponse<String> created = send("POST", "/sessions", "");
+    assertEquals(201, created.statusCode());
+    assertTrue(created.body().contains("1. Country"));
+    String session = created.headers().firstValue("Location").orElseThrow();
+
+    HttpResponse<String> reply = send("POST", session, "3\n");
+    assertEquals(200, reply.statusCode());
+    assertTrue(reply.body().endsWith("Please enter the city: \n"));
+    assertEquals(1, new JSONObject(send("GET", "/sessions", "").body()).getInt("sessions"));
+
+    assertEquals(204, send("DELETE", session, "").statusCode());
+    assertEquals(404, send("POST", session, "1").statusCode());
+
+    session = createSession();
+    reply = send("POST", session, "9");
+    assertEquals("true", reply.headers().firstValue("X-Session-Closed").orElseThrow());
+    assertEquals(404, send("POST", session, "1").statusCode());
+    assertEquals(0, new JSONObject(send("GET", "/sessions", "").body()).getInt("sessions"));
+  }
+
+  @Test
+  public void testCreate_answers503WhenFull() throws Exception {
+    startServer(new FakeGoogleApiService(), 1);
+
+    String session = createSession();
+    assertEquals(503, send("POST", "/sessions", "").statusCode());
+    assertEquals(204, send("DELETE", session, "").statusCode());
+    createSession();
+  }
+
+  @Test
+  public void testSlowLookupsOfManySessionsOverlap() throws Exception {
+    int sessions = 50;
+    Duration latency = Duration.ofMillis(500);
+    FakeGoogleApiService service = new FakeGoogleApiService().withLatency(latency);
+    startServer(service, sessions);
+    List<Future<String>> opened = new ArrayList<>();
+    for (int i = 0; i < sessions; i++) {
+      opened.add(
+          executor.submit(
+              () -> {
+                String session = createSession();
+                send("POST", session, "3");
+                return session;
+              }));
+    }
+    List<String> paths = new ArrayList<>();
+    for (Future<String> session : opened) {
+      paths.add(session.get(10, TimeUnit.SECONDS));
+    }
+
+    long start = System.nanoTime();
+    List<Future<HttpResponse<String>>> replies = new ArrayList<>();
+    for (String session : paths) {
+      replies.add(executor.submit(() -> send("POST", session, "Bengaluru")));
+    }
+    for (Future<HttpResponse<String>> reply : replies) {
+      assertTrue(reply.get(10, TimeUnit.SECONDS).body().contains("1. Bengaluru"));
+    }
+    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    // One after another these lookups would take 25 seconds
+    assertTrue(elapsedMillis < 10 * latency.toMillis(), "Took " + elapsedMillis + " ms");
+    assertTrue(service.getMaxRunning() > sessions / 2, "At most " + service.getMaxRunning());
+  }
+}
@@ -0,0 +1,89 @@
+package demo.trace;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.demo.model.LocationInfo;
+import org.demo.trace.ParseEvent;
+import org.demo.trace.TraceSpan;
+import org.demo.trace.UserActionEvent;
+import org.demo.util.GeocodingParser;
+import org.json.JSONObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the TraceSpan class.
+ */
+public class TraceSpanTest {
+
+  private static final String GEOCODING_RESPONSE =
+      "{\"status\":\"OK\",\"results\":[{\"address_components\":["
+          + "{\"long_name\":\"India\",\"types\":[\"country\"]}]}]}";
+
+  @TempDir Path tempDir;
+
+  @Test
+  @SuppressWarnings("try")
+  public void testEventsInsideSpanCarryItsId() throws IOException, InterruptedException {
+    Path traceFile = tempDir.resolve("trace.jfr");
+    long spanId;
+    try (Recording recording = new Recording()) {
+      recording.enable(UserActionEvent.class);
+      recording.enable(ParseEvent.class);
+      recording.start();
+
+      try (TraceSpan span = TraceSpan.start("Menu choice 6")) {
+        spanId = span.getId();
+        GeocodingParser.parseInto(new JSONObject(GEOCODING_RESPONSE), new LocationInfo());
+        Thread worker =
+            Thread.ofVirtual()
+                .start(
+                    () -> {
+                      try (TraceSpan joined = TraceSpan.join(span)) {
+                        TraceSpan.countApiCall();
+                      }
+                    });
+        worker.join();
+        assertEquals(1, span.getApiCalls());
+      }
+      recording.stop();
+      recording.dump(traceFile);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(traceFile);
+    RecordedEvent action = findEvent(events, "org.demo.UserAction");
+    RecordedEvent parse = findEvent(events, "org.demo.Parse");
+    assertEquals(spanId, action.getLong("spanId"));
+    assertEquals("Menu choice 6", action.getString("action"));
+    assertEquals(1, action.getInt("apiCalls"));
+    assertEquals(spanId, parse.getLong("spanId"));
+    assertEquals("LocationInfo", parse.getString("target"));
+    assertTrue(Files.size(traceFile) > 0);
+  }
+
+  @Test
+  public void testCloseRestoresPreviousSpan() {
+    assertEquals(0, TraceSpan.currentId());
+    try (TraceSpan outer = TraceSpan.start("outer")) {
+      try (TraceSpan inner = TraceSpan.start("inner")) {
+        assertEquals(inner.getId(), TraceSpan.currentId());
+      }
+      assertEquals(outer.getId(), TraceSpan.currentId());
+    }
+    assertNull(TraceSpan.current());
+  }
+
+  private static RecordedEvent findEvent(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(event -> event.getEventType().getName().equals(name))
+        .findFirst()
+        .orElseThrow(() -> new AssertionError("No " + name + " event recorded"));
+  }
+}
@@ -0,0 +1,88 @@
+package demo.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import org.demo.util.PlaceNameIndex;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the PlaceNameIndex class.
+ */
+public class PlaceNameIndexTest {
+
+  @Test
+  public void testNormalize() {
+    assertEquals("sao paulo", PlaceNameIndex.normalize("São  Paulo"));
+    assertEquals("st john s", PlaceNameIndex.normalize("St. John's"));
+  }
+
+  @Test
+  public void testBestMatch_toleratesTypos() {
+    PlaceNameIndex index = new PlaceNameIndex();
+    index.add("Karnataka");
+    index.add("Kerala");
+
+    assertEquals(Optional.of("Karnataka"), index.bestMatch("karnataka"));
+    assertEquals(Optional.of("Karnataka"), index.bestMatch("Karantaka"));
+    assertEquals(Optional.of("Karnataka"), index.bestMatch("Karnatka"));
+    assertEquals(Optional.of("Kerala"), index.bestMatch("Kerela"));
+    assertEquals(Optional.empty(), index.bestMatch("Goa"));
+  }
+
+  @Test
+  public void testBestMatch_requiresExactMatchForShortNames() {
+    PlaceNameIndex index = new PlaceNameIndex();
+    index.add("USA");
+    index.add("India");
+
+    assertTrue(index.matches("usa"));
+    assertFalse(index.matches("UAE"));
+    assertFalse(index.matches("Indiana"));
+  }
+
+  @Test
+  public void testFromResource() {
+    PlaceNameIndex index = PlaceNameIndex.fromResource("/places/countries.txt");
+
+    assertEquals(Optional.of("United Kingdom"), index.bestMatch("united kingdon"));
+    assertTrue(index.matches("Germany"));
+  }
+
+  @Test
+  public void testAdd_dropsLeastRecentlyUsedLearnedName() {
+    PlaceNameIndex index = new PlaceNameIndex(2);
+    index.add("Karnataka");
+    index.add("Kerala");
+    assertTrue(index.matches("Karnatka"));
+    index.add("Goa");
+
+    assertEquals(2, index.size());
+    assertTrue(index.matches("Karnataka"));
+    assertFalse(index.matches("Kerala"));
+    assertFalse(index.matches("Kerela"));
+    assertTrue(index.matches("Goa"));
+  }
+
+  @Test
+  public void testAdd_keepsLoadedNames() {
+    PlaceNameIndex index = PlaceNameIndex.fromResource("/places/countries.txt");
+    int loaded = index.size();
+    for (int i = 0; i < PlaceNameIndex.DEFAULT_MAX_LEARNED_NAMES + 100; i++) {
+      index.add("Town " + i);
+    }
+
+    assertEquals(loaded + PlaceNameIndex.DEFAULT_MAX_LEARNED_NAMES, index.size());
+    assertTrue(index.matches("Germany"));
+    assertFalse(index.matches("Town 0"));
+    assertTrue(index.matches("Town " + (PlaceNameIndex.DEFAULT_MAX_LEARNED_NAMES + 99)));
+  }
+
+  @Test
+  public void testIsMatch() {
+    assertTrue(PlaceNameIndex.isMatch("New Delhi", "delhi"));
+    assertTrue(PlaceNameIndex.isMatch("Zürich", "Zurich"));
+    assertTrue(PlaceNameIndex.isMatch("Mumbai", "Mumbia"));
+    assertFalse(PlaceNameIndex.isMatch("Mumbai", "Pune"));
+  }
+}
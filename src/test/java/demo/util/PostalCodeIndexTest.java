@@ -0,0 +1,96 @@
+package demo.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import org.demo.util.PostalCodeIndex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit tests for the PostalCodeIndex class.
+ */
+public class PostalCodeIndexTest {
+
+  private static final String GEONAMES =
+      String.join(
+          "\n",
+          "IN\t560001\tBengaluru GPO\tKarnataka\t19\tBangalore\t\t\t\t12.9716\t77.5946\t4",
+          "IN\t560034\tKoramangala\tKarnataka\t19\tBangalore\t\t\t\t12.9279\t77.6271\t4",
+          "IN\t400001\tMumbai GPO\tMaharashtra\t16\tMumbai\t\t\t\t18.9388\t72.8354\t4",
+          "FJ\t\tLevuka\tEastern\t\t\t\t\t\t-17.6833\t178.8333\t1",
+          "WS\t\tApia\tTuamasaga\t\t\t\t\t\t-13.8333\t-171.7667\t1",
+          "not a postal code line");
+
+  private static PostalCodeIndex build(Path dir) throws IOException {
+    Path source = dir.resolve("postal-codes.txt");
+    Files.writeString(source, GEONAMES);
+    Path index = dir.resolve("postal-codes.idx");
+    assertEquals(5, PostalCodeIndex.build(source, index));
+    return PostalCodeIndex.open(index);
+  }
+
+  @Test
+  public void testNearest_findsClosestPostalCode(@TempDir Path dir) throws IOException {
+    PostalCodeIndex index = build(dir);
+
+    PostalCodeIndex.Place place = index.nearest(12.93, 77.62).orElseThrow();
+
+    assertEquals("560034", place.postalCode());
+    assertEquals("Koramangala", place.city());
+    assertEquals("Karnataka", place.state());
+    assertEquals("India", place.country());
+    assertTrue(place.distanceKm() < 1);
+  }
+
+  @Test
+  public void testNearest_matchesExhaustiveSearch(@TempDir Path dir) throws IOException {
+    StringBuilder lines = new StringBuilder();
+    Random random = new Random(42);
+    double[][] points = new double[2000][];
+    for (int i = 0; i < points.length; i++) {
+      points[i] = new double[] {random.nextDouble() * 180 - 90, random.nextDouble() * 360 - 180};
+      lines.append("IN\t").append(i).append("\tPlace\tState\t\t\t\t\t\t");
+      lines.append(points[i][0]).append('\t').append(points[i][1]).append("\t1\n");
+    }
+    Path source = dir.resolve("random.txt");
+    Files.writeString(source, lines);
+    PostalCodeIndex.build(source, dir.resolve("random.idx"));
+    PostalCodeIndex index = PostalCodeIndex.open(dir.resolve("random.idx"));
+
+    for (int q = 0; q < 200; q++) {
+      double latitude = random.nextDouble() * 180 - 90;
+      double longitude = random.nextDouble() * 360 - 180;
+      PostalCodeIndex.Place place = index.nearest(latitude, longitude).orElseThrow();
+      double best = Double.POSITIVE_INFINITY;
+      for (double[] point : points) {
+        best = Math.min(best, distanceKm(latitude, longitude, point[0], point[1]));
+      }
+      assertEquals(best, place.distanceKm(), 0.5);
+    }
+  }
+
+  @Test
+  public void testNearest_searchesAcrossDateLine(@TempDir Path dir) throws IOException {
+    PostalCodeIndex index = build(dir);
+
+    PostalCodeIndex.Place place = index.nearest(-17.0, -179.9).orElseThrow();
+
+    assertEquals("Levuka", place.city());
+    assertEquals("Fiji", place.country());
+  }
+
+  private static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+    double dLat = Math.toRadians(lat2 - lat1);
+    double dLng = Math.toRadians(lng2 - lng1);
+    double a =
+        Math.pow(Math.sin(dLat / 2), 2)
+            + Math.cos(Math.toRadians(lat1))
+                * Math.cos(Math.toRadians(lat2))
+                * Math.pow(Math.sin(dLng / 2), 2);
+    return 2 * Math.asin(Math.sqrt(a)) * 6371.0;
+  }
+}
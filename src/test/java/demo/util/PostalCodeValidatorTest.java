@@ -0,0 +1,70 @@
+package demo.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Optional;
+import org.demo.util.PostalCodeValidator;
+import org.demo.util.PostalCodeValidator.Classification;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the PostalCodeValidator class.
+ */
+public class PostalCodeValidatorTest {
+
+  @Test
+  public void testClassify_withValidCodes() {
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("India", "560001"));
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("United States", "90001"));
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("US", "90001-1234"));
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("United Kingdom", "SW1A 1AA"));
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("Canada", "k1a 0b1"));
+  }
+
+  @Test
+  public void testClassify_withInvalidCodes() {
+    assertEquals(Classification.INVALID, PostalCodeValidator.classify("India", "3"));
+    assertEquals(Classification.INVALID, PostalCodeValidator.classify("India", "012345"));
+    assertEquals(Classification.INVALID, PostalCodeValidator.classify("India", "5600011"));
+    assertEquals(Classification.INVALID, PostalCodeValidator.classify("United States", "99999"));
+    assertEquals(Classification.INVALID, PostalCodeValidator.classify("Canada", "123456"));
+  }
+
+  @Test
+  public void testClassify_withUnknownCountry() {
+    assertEquals(Classification.VALID, PostalCodeValidator.classify(null, "560001"));
+    assertEquals(Classification.VALID, PostalCodeValidator.classify("Atlantis", "560001"));
+    assertEquals(Classification.UNKNOWN, PostalCodeValidator.classify(null, "2"));
+  }
+
+  @Test
+  public void testIsFormatOnly() {
+    assertTrue(PostalCodeValidator.isFormatOnly("12"));
+    assertTrue(PostalCodeValidator.isFormatOnly("560 001"));
+    assertTrue(PostalCodeValidator.isFormatOnly("SW1A 1AA"));
+    assertTrue(PostalCodeValidator.isFormatOnly("1234 AB"));
+    assertFalse(PostalCodeValidator.isFormatOnly("Bangalore 560001"));
+    assertFalse(PostalCodeValidator.isFormatOnly("MG Road"));
+    assertFalse(PostalCodeValidator.isFormatOnly("#560001"));
+  }
+
+  @Test
+  public void testIsValidPrefix() {
+    assertTrue(PostalCodeValidator.isValidPrefix("India", "5600"));
+    assertTrue(PostalCodeValidator.isValidPrefix("India", "560001"));
+    assertTrue(PostalCodeValidator.isValidPrefix("United Kingdom", "SW1A"));
+    assertTrue(PostalCodeValidator.isValidPrefix("US", "90001-12"));
+    assertTrue(PostalCodeValidator.isValidPrefix("Atlantis", "0"));
+    assertFalse(PostalCodeValidator.isValidPrefix("India", "0560"));
+    assertFalse(PostalCodeValidator.isValidPrefix("India", "5600011"));
+    assertFalse(PostalCodeValidator.isValidPrefix("United States", "9999"));
+    assertFalse(PostalCodeValidator.isValidPrefix("Canada", "12"));
+  }
+
+  @Test
+  public void testGetIsoCode() {
+    assertEquals(Optional.of("in"), PostalCodeValidator.getIsoCode("India"));
+    assertEquals(Optional.of("gb"), PostalCodeValidator.getIsoCode("united kingdom"));
+    assertEquals(Optional.empty(), PostalCodeValidator.getIsoCode("Atlantis"));
+  }
+}
@@ -0,0 +1,142 @@
+package demo.util;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import demo.FakeGoogleApiService;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import org.demo.exception.GoogleApiException;
+import org.demo.service.PlaceQueryContext;
+import org.demo.util.TypeAheadInput;
+import org.json.JSONArray;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for the TypeAheadInput class.
+ */
+public class TypeAheadInputTest {
+
+  private static final Duration DEBOUNCE = Duration.ofMillis(100);
+
+  private final ByteArrayOutputStream screen = new ByteArrayOutputStream();
+  private PipedOutputStream keyboard;
+  private TypeAheadInput typeAhead;
+
+  /** Starts reading a line of an address on another thread. */
+  private CompletableFuture<TypeAheadInput.Result> startReading(FakeGoogleApiService service)
+      throws IOException {
+    keyboard = new PipedOutputStream();
+    PipedInputStream in = new PipedInputStream(keyboard);
+    PrintStream out = new PrintStream(screen, true, StandardCharsets.UTF_8);
+    typeAhead = new TypeAheadInput(service, DEBOUNCE, in, out);
+    CompletableFuture<TypeAheadInput.Result> result = new CompletableFuture<>();
+    Thread.ofVirtual()
+        .start(
+            () -> {
+              try {
+                result.complete(typeAhead.readLine("Address: ", "address"));
+              } catch (IOException e) {
+                result.completeExceptionally(e);
+              }
+            });
+    return result;
+  }
+
+  private void type(String keys) throws IOException {
+    keyboard.write(keys.getBytes(StandardCharsets.UTF_8));
+    keyboard.flush();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    if (keyboard != null) {
+      keyboard.close();
+    }
+    if (typeAhead != null) {
+      typeAhead.close();
+    }
+  }
+
+  @Test
+  public void testReadLine_sendsOnlyTheQueryTypedBeforeAPause() throws Exception {
+    FakeGoogleApiService service = new FakeGoogleApiService();
+    CompletableFuture<TypeAheadInput.Result> result = startReading(service);
+
+    type("MG Ro");
+    await(() -> !service.getQueries().isEmpty());
+    type("\n");
+
+    TypeAheadInput.Result line = result.get(5, TimeUnit.SECONDS);
+    assertEquals("MG Ro", line.text());
+    assertEquals(1, line.predictions().length());
+    assertEquals(List.of("MG Ro"), service.getQueries());
+  }
+
+  @Test
+  public void testReadLine_cancelsLookupForStalePrefix() throws Exception {
+    AtomicBoolean cancelled = new AtomicBoolean();
+    FakeGoogleApiService service =
+        new FakeGoogleApiService() {
+          @Override
+          protected JSONArray predictions(String input, String type, PlaceQueryContext context)
+              throws GoogleApiException {
+            if (input.equals("MG")) {
+              try {
+                Thread.sleep(10_000);
+              } catch (InterruptedException e) {
+                cancelled.set(true);
+                throw new GoogleApiException("CANCELLED", "Lookup cancelled");
+              }
+            }
+            return super.predictions(input, type, context);
+          }
+        };
+    CompletableFuture<TypeAheadInput.Result> result = startReading(service);
+
+    type("MG");
+    await(() -> service.getQueries().contains("MG"));
+    type(" Road");
+    await(() -> screen.toString(StandardCharsets.UTF_8).contains("MG Road, Bengaluru"));
+    type("\n");
+
+    TypeAheadInput.Result line = result.get(5, TimeUnit.SECONDS);
+    assertEquals("MG Road", line.text());
+    assertNotNull(line.predictions());
+    assertEquals(List.of("MG", "MG Road"), service.getQueries());
+    await(cancelled::get);
+  }
+
+  @Test
+  public void testReadLine_rendersSuggestionsWhileEscapeIsPending() throws Exception {
+    FakeGoogleApiService service =
+        new FakeGoogleApiService().withLatency(Duration.ofMillis(200));
+    CompletableFuture<TypeAheadInput.Result> result = startReading(service);
+
+    type("MG");
+    await(() -> service.getQueries().contains("MG"));
+    // A lone Escape leaves the reader waiting for the next key
+    type("\033");
+    await(() -> screen.toString(StandardCharsets.UTF_8).contains("MG Road, Bengaluru"));
+    type("x\n");
+
+    assertEquals("MGx", result.get(5, TimeUnit.SECONDS).text());
+  }
+}